@@ -1,11 +1,36 @@
 package com.example;
 
+import com.example.service.ChangeLogSync;
+import com.example.service.GraphIndexService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class Application {
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
-}
\ No newline at end of file
+
+    /**
+     * fast-start 配置（延迟初始化）下仍在启动时创建的 bean：
+     * 图索引要在就绪前加载完，定时任务只有 bean 创建后才会注册
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerLineageBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(GraphIndexService.class, ChangeLogSync.class);
+    }
+
+    /** appcds-training 配置：就绪后立即退出，AppCDS 训练运行据此覆盖完整的启动过程 */
+    @Bean
+    @ConditionalOnProperty(name = "lineage.exit-after-ready", havingValue = "true")
+    static ApplicationListener<ApplicationReadyEvent> exitAfterReady() {
+        return e -> System.exit(SpringApplication.exit(e.getApplicationContext()));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example;
+
+import com.example.model.LineageGraph;
+import com.example.service.LineageBuilder;
+import com.example.service.LineageMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 离线批量解析（不启动 Spring 容器、不连数据库）：并行遍历目录下的 .sql 文件，
+ * 把各脚本的血缘合并成一张图写成 JSON，供检查或之后批量入库。
+ * <pre>
+ * java -cp target/classes:&lt;依赖&gt; com.example.BatchLineageCli &lt;目录&gt; [-o 输出文件] [-t 线程数] [--process-nodes]
+ *     [--simple-budget-ms 毫秒] [--complex-budget-ms 毫秒]
+ * </pre>
+ * 默认在工作线程内直接解析、不限时，并行度就是 -t；指定解析预算后每次解析改到服务共用的解析线程池里限时执行，
+ * 实际并行度受该池大小限制。
+ * 输出：{ files, failed: [{file, error}], nodes: [{id, label, type}], edges: [{source, target, files}] }，
+ * 不指定 -o 时写到标准输出。
+ */
+public class BatchLineageCli {
+
+    /** 合并后的边：(来源, 目标) 及产出它的脚本（相对路径） */
+    public static class MergedEdge {
+        public final String source;
+        public final String target;
+        public final Set<String> files = new TreeSet<>();
+
+        MergedEdge(String source, String target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    public static class Failure {
+        public final String file;
+        public final String error;
+
+        Failure(String file, String error) {
+            this.file = file;
+            this.error = error;
+        }
+    }
+
+    public static class Output {
+        public int files;
+        public List<Failure> failed = new ArrayList<>();
+        public List<LineageGraph.Node> nodes = new ArrayList<>();
+        public List<MergedEdge> edges = new ArrayList<>();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path root = null;
+        Path out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean processNodes = false;
+        long simpleBudgetMs = 0;
+        long complexBudgetMs = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--process-nodes":
+                    processNodes = true;
+                    break;
+                case "--simple-budget-ms":
+                    simpleBudgetMs = Long.parseLong(args[++i]);
+                    break;
+                case "--complex-budget-ms":
+                    complexBudgetMs = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    root = Paths.get(args[i]);
+            }
+        }
+        if (root == null || !Files.isDirectory(root)) {
+            System.err.println("usage: BatchLineageCli <dir> [-o out.json] [-t threads] [--process-nodes]"
+                    + " [--simple-budget-ms ms] [--complex-budget-ms ms]");
+            System.exit(2);
+        }
+
+        long t0 = System.currentTimeMillis();
+        LineageBuilder builder = new LineageBuilder(new LineageMetrics(new SimpleMeterRegistry()), null,
+                simpleBudgetMs, complexBudgetMs, processNodes, 100_000);
+        Output result = run(builder, root, threads);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (out != null) {
+            Path dir = out.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            mapper.writeValue(out.toFile(), result);
+        } else {
+            mapper.writeValue(System.out, result);
+        }
+        System.err.printf("%d files (%d failed), %d nodes, %d edges in %d ms%n", result.files, result.failed.size(),
+                result.nodes.size(), result.edges.size(), System.currentTimeMillis() - t0);
+    }
+
+    /** 在 threads 个线程上解析 root 下全部 .sql 文件并合并 */
+    public static Output run(LineageBuilder builder, Path root, int threads) throws Exception {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(p -> Files.isRegularFile(p) && p.toString().toLowerCase(Locale.ROOT).endsWith(".sql"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, LineageGraph.Node> nodes = new ConcurrentHashMap<>();
+        Map<String, MergedEdge> edges = new ConcurrentHashMap<>();
+        Queue<Failure> failed = new ConcurrentLinkedQueue<>();
+        AtomicInteger done = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.submit(() -> files.parallelStream().forEach(f -> {
+                String rel = root.relativize(f).toString().replace('\\', '/');
+                try {
+                    LineageBuilder.Script s = builder.build(read(f));
+                    for (LineageGraph.Node n : s.graph.getNodes()) {
+                        nodes.putIfAbsent(n.getId(), n);
+                    }
+                    for (LineageGraph.Edge e : s.graph.getEdges()) {
+                        MergedEdge m = edges.computeIfAbsent(e.getSource() + "\u0000" + e.getTarget(),
+                                k -> new MergedEdge(e.getSource(), e.getTarget()));
+                        synchronized (m) {
+                            m.files.add(rel);
+                        }
+                    }
+                } catch (Exception | StackOverflowError e) {
+                    failed.add(new Failure(rel, e.toString()));
+                }
+                done.incrementAndGet();
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        Output o = new Output();
+        o.files = done.get();
+        o.failed.addAll(failed);
+        o.failed.sort(Comparator.comparing(x -> x.file));
+        o.nodes.addAll(nodes.values());
+        o.nodes.sort(Comparator.comparing(LineageGraph.Node::getId));
+        o.edges.addAll(edges.values());
+        o.edges.sort(Comparator.comparing((MergedEdge e) -> e.source).thenComparing(e -> e.target));
+        return o;
+    }
+
+    private static String read(Path f) throws IOException {
+        return new String(Files.readAllBytes(f), StandardCharsets.UTF_8);
+    }
+}
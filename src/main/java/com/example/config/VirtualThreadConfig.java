@@ -0,0 +1,53 @@
+package com.example.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程模式（lineage.virtual-threads.enabled=true，见 application-vthreads.properties）：
+ * Tomcat 的请求处理（含入库请求及其 JDBC 调用）改为每个请求一个虚拟线程，
+ * 慢 SQL 期间阻塞的只是虚拟线程，读请求不会因为线程池耗尽而排队。
+ * <p>
+ * 项目按 Java 8 编译，虚拟线程 API 通过反射取得；运行时 JDK 低于 21 时打印警告并保持平台线程。
+ */
+@Configuration
+@ConditionalOnProperty(name = "lineage.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandler() {
+        ExecutorService executor = newVirtualThreadExecutor("http-vt-");
+        return handler -> {
+            if (executor != null) {
+                handler.setExecutor(executor);
+                log.info("tomcat request handling runs on virtual threads");
+            }
+        };
+    }
+
+    /** Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())；不支持时返回 null */
+    static ExecutorService newVirtualThreadExecutor(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads need JDK 21+, running on {} with platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
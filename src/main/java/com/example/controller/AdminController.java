@@ -0,0 +1,43 @@
+package com.example.controller;
+
+import com.example.service.SlowStatementLog;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/** 运维/诊断接口 */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final SlowStatementLog slowLog;
+
+    public AdminController(SlowStatementLog slowLog) {
+        this.slowLog = slowLog;
+    }
+
+    /** 最慢的语句（按总耗时倒序） */
+    @GetMapping(path="/slow-statements", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<SlowStatementLog.SlowStatement> slowStatements() {
+        return slowLog.snapshot();
+    }
+
+    /** 以脚本形式导出慢语句，可直接放进基准语料；分号另起一行，语句以 -- 注释结尾时不会被注释吞掉 */
+    @GetMapping(path="/slow-statements/corpus", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String slowStatementCorpus() {
+        StringBuilder sb = new StringBuilder();
+        for (SlowStatementLog.SlowStatement s : slowLog.snapshot()) {
+            sb.append("-- ordinal=").append(s.ordinal)
+                    .append(" path=").append(s.path)
+                    .append(" totalMs=").append(s.totalMs)
+                    .append('\n').append(s.sql).append("\n;\n\n");
+        }
+        return sb.toString();
+    }
+
+    @DeleteMapping(path="/slow-statements")
+    public void clearSlowStatements() {
+        slowLog.clear();
+    }
+}
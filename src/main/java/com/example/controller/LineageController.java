@@ -1,12 +1,23 @@
 package com.example.controller;
 
+import com.example.dto.BatchGraphDTO;
 import com.example.dto.GraphDTO;
+import com.example.dto.LineageDiffDTO;
+import com.example.dto.LineagePathDTO;
+import com.example.dto.SchemaGraphDTO;
+import com.example.dto.StatementProvenanceDTO;
 import com.example.dto.TableSummaryDTO;
+import com.example.dto.TopoOrderDTO;
+import com.example.service.LineageEventBus;
 import com.example.service.LineageService;
 import com.example.service.PersistenceService;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,27 +28,55 @@ public class LineageController {
 
     private final LineageService lineageService;
     private final PersistenceService persistenceService;
+    private final LineageEventBus events;
 
-    public LineageController(LineageService lineageService, PersistenceService persistenceService) {
+    public LineageController(LineageService lineageService, PersistenceService persistenceService,
+                             LineageEventBus events) {
         this.lineageService = lineageService;
         this.persistenceService = persistenceService;
+        this.events = events;
     }
 
     public static class SqlPayload {
         private String sql;
+        private Long replacesRunId;
+        private String jobKey;
         public String getSql() { return sql; }
         public void setSql(String sql) { this.sql = sql; }
+        public Long getReplacesRunId() { return replacesRunId; }
+        public void setReplacesRunId(Long replacesRunId) { this.replacesRunId = replacesRunId; }
+        public String getJobKey() { return jobKey; }
+        public void setJobKey(String jobKey) { this.jobKey = jobKey; }
+    }
+
+    public static class BatchGraphPayload {
+        private List<String> centers;
+        private Integer depth;
+        private String direction;
+        private String mode;
+        public List<String> getCenters() { return centers; }
+        public void setCenters(List<String> centers) { this.centers = centers; }
+        public Integer getDepth() { return depth; }
+        public void setDepth(Integer depth) { this.depth = depth; }
+        public String getDirection() { return direction; }
+        public void setDirection(String direction) { this.direction = direction; }
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
     }
 
     @PostMapping(path="/lineage/parse-save", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public Map<String, Object> parseAndSave(@RequestBody SqlPayload payload) throws Exception {
-        LineageService.ParseResult r = lineageService.buildAndSave(payload.getSql());
+        LineageService.ParseResult r = lineageService.buildAndSave(payload.getSql(), payload.getReplacesRunId(),
+                payload.getJobKey() == null || payload.getJobKey().trim().isEmpty() ? null : payload.getJobKey().trim());
         Map<String, Object> out = new HashMap<>();
         out.put("saved", r.saved);
         out.put("message", r.message);
         out.put("runId", r.runId);
         out.put("nodes", r.graph.getNodes());
         out.put("edges", r.graph.getEdges());
+        if (r.saved) {
+            out.put("cycleEdges", persistenceService.cycleEdgesOfRun(r.runId));
+        }
         return out;
     }
 
@@ -48,10 +87,97 @@ public class LineageController {
         return persistenceService.listTables(kw);
     }
 
-    /** 获取以指定表为中心的子图（depth 默认 10） */
+    /** 某次入库的脚本原文 */
+    @GetMapping(path="/runs/{id}/sql", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> runSql(@PathVariable("id") Long id) {
+        String sql = persistenceService.loadSql(id);
+        return sql == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(sql);
+    }
+
+    /** 边对应的源语句（只返回该条语句的原文） */
+    @GetMapping(path="/edges/{id}/statement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StatementProvenanceDTO> edgeStatement(@PathVariable("id") Long id) {
+        StatementProvenanceDTO p = persistenceService.statementForEdge(id);
+        return p == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(p);
+    }
+
+    /**
+     * 两个时刻之间新增/消失的表级边：两端分别用 fromRun/toRun（run id）、from/to（ISO 时间），
+     * 或 job + fromVersion/toVersion（作业版本号，从 1 开始）
+     */
+    @GetMapping(path="/diff", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<LineageDiffDTO> diff(@RequestParam(name="fromRun", required = false) Long fromRun,
+                                               @RequestParam(name="toRun", required = false) Long toRun,
+                                               @RequestParam(name="from", required = false) Instant from,
+                                               @RequestParam(name="to", required = false) Instant to,
+                                               @RequestParam(name="job", required = false) String job,
+                                               @RequestParam(name="fromVersion", required = false) Integer fromVersion,
+                                               @RequestParam(name="toVersion", required = false) Integer toVersion) {
+        try {
+            return ResponseEntity.ok(persistenceService.diff(fromRun, toRun, from, to, job, fromVersion, toVersion));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 一次请求查多个中心表的子图（depth 默认 10，direction: up/down/both 默认 both，
+     * mode: union/per-center 默认 union），代替逐个调用 /graph
+     */
+    @PostMapping(path="/graph/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public BatchGraphDTO graphBatch(@RequestBody BatchGraphPayload payload) {
+        List<String> centers = payload.getCenters() == null ? Collections.emptyList() : payload.getCenters();
+        int depth = payload.getDepth() == null ? 10 : payload.getDepth();
+        return persistenceService.batchSubgraph(centers, depth, payload.getDirection(), payload.getMode());
+    }
+
+    /**
+     * 血缘变更推送（SSE）：连接后先收到 hello（当前 epoch），之后每次入库提交推一条 change，
+     * 收到 reset 时应重新拉取表清单与当前子图
+     */
+    @GetMapping(path="/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return events.subscribe();
+    }
+
+    /** 库级概览（按库名汇总，如 ods → dwd → dws → ads，边权重为两库之间的表级依赖数） */
+    @GetMapping(path="/schema-graph", produces = MediaType.APPLICATION_JSON_VALUE)
+    public SchemaGraphDTO schemaGraph() {
+        return persistenceService.schemaGraph();
+    }
+
+    /** 库级概览下钻：source 库的表到 target 库的表的依赖（最多 limit 条） */
+    @GetMapping(path="/schema-graph/edges", produces = MediaType.APPLICATION_JSON_VALUE)
+    public GraphDTO schemaEdges(@RequestParam("source") String source,
+                                @RequestParam("target") String target,
+                                @RequestParam(name="limit", defaultValue = "500") int limit) {
+        return persistenceService.schemaEdges(source, target, Math.min(limit, 5000));
+    }
+
+    /** 按依赖关系排好的执行顺序（上游在前），以及无法排序的成环边 */
+    @GetMapping(path="/topo-order", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TopoOrderDTO topoOrder() {
+        return persistenceService.topoOrder();
+    }
+
+    /** from 如何一步步流到 to：默认只给最短路径，k > 1 时按跳数由短到长给出多条 */
+    @GetMapping(path="/path", produces = MediaType.APPLICATION_JSON_VALUE)
+    public LineagePathDTO path(@RequestParam("from") String from,
+                               @RequestParam("to") String to,
+                               @RequestParam(name="k", defaultValue = "1") int k,
+                               @RequestParam(name="maxHops", defaultValue = "10") int maxHops) {
+        return persistenceService.paths(from, to, Math.min(k, 100), Math.min(maxHops, 50));
+    }
+
+    /**
+     * 获取以指定表为中心的子图（depth 默认 10）；
+     * 可用 asOfRun（run id）或 asOf（ISO 时间，如 2024-01-01T00:00:00Z）查看历史时刻的血缘
+     */
     @GetMapping(path="/graph", produces = MediaType.APPLICATION_JSON_VALUE)
     public GraphDTO graphFor(@RequestParam("center") String center,
-                             @RequestParam(name="depth", required = false) Integer depth) {
-        return persistenceService.subgraphFor(center);
+                             @RequestParam(name="depth", required = false) Integer depth,
+                             @RequestParam(name="asOfRun", required = false) Long asOfRun,
+                             @RequestParam(name="asOf", required = false) Instant asOf) {
+        return persistenceService.subgraphFor(center, asOfRun, asOf);
     }
 }
@@ -0,0 +1,26 @@
+package com.example.dao;
+
+import com.example.model.ChangeLogEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ChangeLogRepo extends JpaRepository<ChangeLogEntity, Long> {
+    /** 追读：afterSeq 之后的记录，按 seq 顺序 */
+    @Query("select c from ChangeLogEntity c where c.seq > :afterSeq order by c.seq")
+    List<ChangeLogEntity> findAfter(@Param("afterSeq") long afterSeq, Pageable page);
+
+    /** 补读之前跳过的 seq 区间 [from, to]（当时所在事务尚未提交），按 seq 顺序 */
+    @Query("select c from ChangeLogEntity c where c.seq between :from and :to order by c.seq")
+    List<ChangeLogEntity> findInRange(@Param("from") long from, @Param("to") long to, Pageable page);
+
+    /** 某时间点之前的最大 seq（没有则为 null），作为启动时的追读起点 */
+    @Query("select max(c.seq) from ChangeLogEntity c where c.createdAt < :before")
+    Long findMaxSeqCreatedBefore(@Param("before") Instant before);
+}
@@ -2,9 +2,14 @@ package com.example.dao;
 
 import com.example.model.EdgeEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +19,36 @@ public interface EdgeRepo extends JpaRepository<EdgeEntity, Long> {
 
     @Query("select e from EdgeEntity e join fetch e.source s join fetch e.target t")
     List<EdgeEntity> findAllWithNodes();
+
+    /** 回放常驻图索引用：按边 id 分页取标量列（不构造实体），run id 不小于 fromRunId */
+    @Query("select e.id, s.name, s.type, t.name, t.type, e.run.id, e.validToRun from EdgeEntity e join e.source s join e.target t " +
+            "where e.run.id >= :fromRunId and e.id > :afterId order by e.id")
+    List<Object[]> findIndexRowsFromRun(@Param("fromRunId") long fromRunId, @Param("afterId") long afterId, Pageable page);
+
+    /** 变更日志追读：某次 run 写入的边（列同 findIndexRowsFromRun） */
+    @Query("select e.id, s.name, s.type, t.name, t.type, e.run.id, e.validToRun from EdgeEntity e join e.source s join e.target t " +
+            "where e.run.id = :runId")
+    List<Object[]> findIndexRowsOfRun(@Param("runId") long runId);
+
+    /** 变更日志追读：被某次 run 关闭的边 id */
+    @Query("select e.id from EdgeEntity e where e.validToRun = :runId")
+    List<Long> findIdsClosedByRun(@Param("runId") long runId);
+
+    /** 回放用：被 fromRunId 及之后的 run 关闭的边（边本身可能更早写入，已在快照里） */
+    @Query("select e.id, e.validToRun from EdgeEntity e where e.validToRun >= :fromRunId")
+    List<Object[]> findClosedFromRun(@Param("fromRunId") long fromRunId);
+
+    /** 某次 run 写入且仍有效的边 id（用于 replacesRunId） */
+    @Query("select e.id from EdgeEntity e where e.run.id = :runId and e.validToRun is null")
+    List<Long> findOpenIdsByRun(@Param("runId") Long runId);
+
+    /** 某作业当前仍有效的边：id、来源表名、目标表名 */
+    @Query("select e.id, s.name, t.name from EdgeEntity e join e.source s join e.target t " +
+            "where e.run.jobKey = :jobKey and e.validToRun is null")
+    List<Object[]> findOpenPairsByJob(@Param("jobKey") String jobKey);
+
+    /** 按 id 关闭仍有效的边 */
+    @Modifying
+    @Query("update EdgeEntity e set e.validToRun = :byRunId, e.validTo = :at where e.id in :ids and e.validToRun is null")
+    int closeOpenByIds(@Param("ids") Collection<Long> ids, @Param("byRunId") Long byRunId, @Param("at") Instant at);
 }
@@ -0,0 +1,20 @@
+package com.example.dao;
+
+import com.example.model.JobLockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobLockRepo extends JpaRepository<JobLockEntity, String> {
+    /** 作业第一次入库时建锁行，已存在则忽略 */
+    @Modifying
+    @Query(value = "insert ignore into ln_job_lock (job_key, created_at) values (:jobKey, now())", nativeQuery = true)
+    int insertIgnore(@Param("jobKey") String jobKey);
+
+    /** 排他锁住作业的锁行，直到当前事务结束 */
+    @Query(value = "select job_key from ln_job_lock where job_key = :jobKey for update", nativeQuery = true)
+    String lock(@Param("jobKey") String jobKey);
+}
@@ -2,7 +2,28 @@ package com.example.dao;
 
 import com.example.model.LineageRunEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
 @Repository
-public interface LineageRunRepo extends JpaRepository<LineageRunEntity, Long> { }
+public interface LineageRunRepo extends JpaRepository<LineageRunEntity, Long> {
+    /** 某时间点之后创建的最小 run id（没有则为 null） */
+    @Query("select min(r.id) from LineageRunEntity r where r.createdAt >= :since")
+    Long findMinIdCreatedSince(@Param("since") Instant since);
+
+    /** 某时间点及之前创建的最大 run id（没有则为 null），用于把 asOf 时间换算成 run */
+    @Query("select max(r.id) from LineageRunEntity r where r.createdAt <= :at")
+    Long findMaxIdCreatedAtOrBefore(@Param("at") Instant at);
+
+    /** 某作业的全部 run id，按提交先后（即版本号顺序） */
+    @Query("select r.id from LineageRunEntity r where r.jobKey = :jobKey order by r.id")
+    List<Long> findIdsByJobKey(@Param("jobKey") String jobKey);
+
+    /** 只取哈希，避免把历史 run 的 LONGTEXT 正文一起加载 */
+    @Query("select r.sqlHash from LineageRunEntity r where r.id = :id")
+    String findSqlHashById(@Param("id") Long id);
+}
@@ -0,0 +1,18 @@
+package com.example.dao;
+
+import com.example.model.SqlBlobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SqlBlobRepo extends JpaRepository<SqlBlobEntity, String> {
+    /** 同一脚本并发入库时只保留一份，已存在则忽略 */
+    @Modifying
+    @Query(value = "insert ignore into ln_sql_blob (hash, codec, raw_length, data, created_at) " +
+            "values (:hash, :codec, :rawLength, :data, now())", nativeQuery = true)
+    int insertIgnore(@Param("hash") String hash, @Param("codec") String codec,
+                     @Param("rawLength") int rawLength, @Param("data") byte[] data);
+}
@@ -0,0 +1,12 @@
+package com.example.dao;
+
+import com.example.model.StatementSpanEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StatementSpanRepo extends JpaRepository<StatementSpanEntity, Long> {
+    Optional<StatementSpanEntity> findByRun_IdAndStmtIndex(Long runId, Integer stmtIndex);
+}
@@ -2,10 +2,14 @@ package com.example.dao;
 
 import com.example.model.TableNodeEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +17,21 @@ import java.util.Optional;
 public interface TableNodeRepo extends JpaRepository<TableNodeEntity, Long> {
     Optional<TableNodeEntity> findByName(String name);
 
+    List<TableNodeEntity> findByNameIn(Collection<String> names);
+
+    /** 加共享锁读取：能看到其他事务刚提交的行（普通一致性读在可重复读隔离级别下看不到） */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select t from TableNodeEntity t where t.name in :names")
+    List<TableNodeEntity> lockByNameIn(@Param("names") Collection<String> names);
+
+    /** 并发入库遇到同一张新表时只会有一行，已存在则忽略，不会因唯一键冲突让整个事务回滚 */
+    @Modifying
+    @Query(value = "insert ignore into ln_table (name, type, display_name, created_at, updated_at) " +
+            "values (:name, :type, :displayName, now(), now())", nativeQuery = true)
+    int insertIgnore(@Param("name") String name, @Param("type") String type, @Param("displayName") String displayName);
+
     @Query("select t from TableNodeEntity t " +
-            "where (:kw is null or :kw = '' or t.name like concat('%', :kw, '%') or t.displayName like concat('%', :kw, '%')) " +
+            "where t.type <> 'process' and (:kw is null or :kw = '' or t.name like concat('%', :kw, '%') or t.displayName like concat('%', :kw, '%')) " +
             "order by t.name asc")
     List<TableNodeEntity> searchByKeyword(@Param("kw") String kw);
 }
@@ -0,0 +1,17 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+/** 多中心子图查询结果：union 模式只填 union，per-center 模式按中心表名填 perCenter */
+@Getter @Setter @NoArgsConstructor
+public class BatchGraphDTO {
+    public GraphDTO union;
+    public Map<String, GraphDTO> perCenter;
+    /** 索引里不存在的中心表 */
+    public List<String> missing;
+}
@@ -0,0 +1,25 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 推送给前端的血缘变更：新增的节点/边、不再有有效边的 (来源, 目标)，以及变更后的索引 epoch。
+ * kind=reset 表示客户端落后太多、变更已被丢弃，需要重新拉取。
+ */
+@Getter @Setter @NoArgsConstructor
+public class LineageChangeDTO {
+    public static final String CHANGE = "change";
+    public static final String RESET = "reset";
+
+    public String kind = CHANGE;
+    public long epoch;
+    public Long runId;
+    public List<GraphDTO.Node> nodes = new ArrayList<>();
+    public List<GraphDTO.Edge> addedEdges = new ArrayList<>();
+    public List<GraphDTO.Edge> removedEdges = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 两个时刻之间的血缘差异（表级边，同一对表只算一条） */
+@Getter @Setter @NoArgsConstructor
+public class LineageDiffDTO {
+    public long fromRunId;
+    public long toRunId;
+    public List<GraphDTO.Edge> added = new ArrayList<>();
+    public List<GraphDTO.Edge> removed = new ArrayList<>();
+}
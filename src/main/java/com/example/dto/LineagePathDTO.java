@@ -0,0 +1,16 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 两张表之间的血缘路径（按跳数从短到长，每条路径是从 from 到 to 的表名序列） */
+@Getter @Setter @NoArgsConstructor
+public class LineagePathDTO {
+    public String from;
+    public String to;
+    public List<List<String>> paths = new ArrayList<>();
+}
@@ -0,0 +1,21 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 库级血缘概览：每个库一个节点，边权重为两库之间有效的表级依赖数 */
+@Getter @Setter @NoArgsConstructor
+public class SchemaGraphDTO {
+    @Getter @Setter @AllArgsConstructor @NoArgsConstructor
+    public static class Schema { public String name; public int tables; }
+    @Getter @Setter @AllArgsConstructor @NoArgsConstructor
+    public static class Edge { public String source; public String target; public int weight; }
+
+    public List<Schema> schemas = new ArrayList<>();
+    public List<Edge> edges = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** 一条边对应的源语句 */
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class StatementProvenanceDTO {
+    public Long edgeId;
+    public Long runId;
+    public Integer stmtIndex;
+    public String stepLabel;
+    public int start;
+    public int end;
+    public String sql;
+}
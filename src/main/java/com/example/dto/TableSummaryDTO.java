@@ -11,4 +11,9 @@ public class TableSummaryDTO {
     public String type;
     public long inDegree;
     public long outDegree;
+    /** 以下为后台分析结果（入库后异步刷新，可能稍有滞后） */
+    public long upstreamCount;     // 传递上游表数
+    public long downstreamCount;   // 传递下游表数
+    public double pageRank;        // 被依赖的重要度
+    public int depth;              // 距源头表的最长路径跳数
 }
@@ -0,0 +1,19 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 当前血缘的拓扑序（上游在前）以及写入时会成环、未参与排序的边 */
+@Getter @Setter @NoArgsConstructor
+public class TopoOrderDTO {
+    @Getter @Setter @AllArgsConstructor @NoArgsConstructor
+    public static class CycleEdge { public long edgeId; public long runId; public String source; public String target; }
+
+    public List<String> order = new ArrayList<>();
+    public List<CycleEdge> cycleEdges = new ArrayList<>();
+}
@@ -0,0 +1,198 @@
+package com.example.graph;
+
+import java.util.Arrays;
+
+/**
+ * 增量维护的拓扑序（Pearce–Kelly）。插入边 x -> y 时若 x 已排在 y 前面则什么都不做；
+ * 否则只在 [ord(y), ord(x)] 这段区间里找出受影响的节点（y 向前可达的 δF、x 向后可达的 δB），
+ * 把它们原来占用的位置重新分配：先放 δB 再放 δF。正向搜索碰到 x 说明会成环，拒绝该边。
+ * 删除边不会破坏已有的拓扑序，只需从邻接表里去掉。
+ * <p>
+ * 节点编号沿用表名字典 id；非线程安全，由 {@link LineageGraphIndex} 的写锁保护。
+ */
+public final class DynamicTopoOrder {
+
+    private int[] ord = new int[1024];      // 节点 -> 位置，-1 表示不存在
+    private int[] nodeAt = new int[1024];   // 位置 -> 节点
+    private int size;
+    private IntArrayList[] out = new IntArrayList[1024];
+    private IntArrayList[] in = new IntArrayList[1024];
+    private final LongIntHashMap pairCount = new LongIntHashMap(1024);
+
+    private int[] mark = new int[1024];
+    private int stamp;
+    private final IntArrayList stack = new IntArrayList();
+    private final IntArrayList deltaF = new IntArrayList();
+    private final IntArrayList deltaB = new IntArrayList();
+
+    public DynamicTopoOrder() {
+        Arrays.fill(ord, -1);
+    }
+
+    /**
+     * 插入边 x -> y（同一对节点可重复插入，按次数计）。会成环时不插入并返回 false。
+     */
+    public boolean addEdge(int x, int y) {
+        ensureNode(x);
+        ensureNode(y);
+        long key = ((long) x << 32) | y;
+        int c = pairCount.get(key);
+        if (c > 0) {
+            pairCount.put(key, c + 1);
+            return true;
+        }
+        if (x == y) {
+            return false;
+        }
+        if (ord[x] > ord[y] && !reorder(x, y)) {
+            return false;
+        }
+        out[x].add(y);
+        in[y].add(x);
+        pairCount.put(key, 1);
+        return true;
+    }
+
+    /** 删除一次 addEdge 成功插入的边 x -> y；返回 x -> y 是否已从图中消失（之前被拒的边可能因此不再成环） */
+    public boolean removeEdge(int x, int y) {
+        long key = ((long) x << 32) | y;
+        int c = pairCount.get(key);
+        if (c <= 0) {
+            return false;
+        }
+        pairCount.put(key, c - 1);
+        if (c == 1) {
+            out[x].removeValue(y);
+            in[y].removeValue(x);
+            return true;
+        }
+        return false;
+    }
+
+    /** 当前拓扑序（节点 id），上游在前；最后一条边已删除的节点仍占着位置，但不再列出 */
+    public int[] order() {
+        int[] res = new int[size];
+        int n = 0;
+        for (int pos = 0; pos < size; pos++) {
+            int v = nodeAt[pos];
+            if (!out[v].isEmpty() || !in[v].isEmpty()) {
+                res[n++] = v;
+            }
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    public int position(int node) {
+        return node < ord.length ? ord[node] : -1;
+    }
+
+    private boolean reorder(int x, int y) {
+        int lb = ord[y], ub = ord[x];
+        nextStamp();
+        deltaF.clear();
+        deltaB.clear();
+
+        // 正向：从 y 出发，只走位置 < ub 的节点；碰到 x 即成环
+        stack.clear();
+        stack.add(y);
+        mark[y] = stamp;
+        while (!stack.isEmpty()) {
+            int n = stack.removeLast();
+            deltaF.add(n);
+            IntArrayList succ = out[n];
+            for (int i = 0; i < succ.size(); i++) {
+                int w = succ.get(i);
+                if (w == x) {
+                    return false;
+                }
+                if (mark[w] != stamp && ord[w] < ub) {
+                    mark[w] = stamp;
+                    stack.add(w);
+                }
+            }
+        }
+
+        // 反向：从 x 出发，只走位置 > lb 的节点
+        stack.add(x);
+        mark[x] = stamp;
+        while (!stack.isEmpty()) {
+            int n = stack.removeLast();
+            deltaB.add(n);
+            IntArrayList pred = in[n];
+            for (int i = 0; i < pred.size(); i++) {
+                int w = pred.get(i);
+                if (mark[w] != stamp && ord[w] > lb) {
+                    mark[w] = stamp;
+                    stack.add(w);
+                }
+            }
+        }
+
+        // 受影响节点原来占用的位置排序后依次分配：δB（按原顺序）在前，δF 在后
+        int[] b = sortByOrd(deltaB);
+        int[] f = sortByOrd(deltaF);
+        int[] slots = new int[b.length + f.length];
+        int k = 0;
+        for (int v : b) {
+            slots[k++] = ord[v];
+        }
+        for (int v : f) {
+            slots[k++] = ord[v];
+        }
+        Arrays.sort(slots);
+        k = 0;
+        for (int v : b) {
+            place(v, slots[k++]);
+        }
+        for (int v : f) {
+            place(v, slots[k++]);
+        }
+        return true;
+    }
+
+    private int[] sortByOrd(IntArrayList nodes) {
+        long[] keyed = new long[nodes.size()];
+        for (int i = 0; i < keyed.length; i++) {
+            keyed[i] = ((long) ord[nodes.get(i)] << 32) | nodes.get(i);
+        }
+        Arrays.sort(keyed);
+        int[] res = new int[keyed.length];
+        for (int i = 0; i < keyed.length; i++) {
+            res[i] = (int) keyed[i];
+        }
+        return res;
+    }
+
+    private void place(int v, int pos) {
+        ord[v] = pos;
+        nodeAt[pos] = v;
+    }
+
+    private void ensureNode(int v) {
+        if (v >= ord.length) {
+            int cap = Math.max(ord.length * 2, v + 1);
+            int old = ord.length;
+            ord = Arrays.copyOf(ord, cap);
+            Arrays.fill(ord, old, cap, -1);
+            out = Arrays.copyOf(out, cap);
+            in = Arrays.copyOf(in, cap);
+            mark = Arrays.copyOf(mark, cap);
+        }
+        if (ord[v] >= 0) {
+            return;
+        }
+        if (size == nodeAt.length) {
+            nodeAt = Arrays.copyOf(nodeAt, size * 2);
+        }
+        place(v, size++);
+        out[v] = new IntArrayList();
+        in[v] = new IntArrayList();
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.graph;
+
+/** 一条已落库的边（写入常驻索引 / 快照回放用） */
+public class EdgeRecord {
+    public final long edgeId;
+    public final String source;
+    public final String sourceType;
+    public final String target;
+    public final String targetType;
+    public final long runId;
+    /** 使该边失效的 run id；仍有效时为 {@link LineageGraphIndex#OPEN} */
+    public final long retiredRunId;
+
+    public EdgeRecord(long edgeId, String source, String sourceType,
+                      String target, String targetType, long runId) {
+        this(edgeId, source, sourceType, target, targetType, runId, LineageGraphIndex.OPEN);
+    }
+
+    public EdgeRecord(long edgeId, String source, String sourceType,
+                      String target, String targetType, long runId, long retiredRunId) {
+        this.edgeId = edgeId;
+        this.source = source;
+        this.sourceType = sourceType;
+        this.target = target;
+        this.targetType = targetType;
+        this.runId = runId;
+        this.retiredRunId = retiredRunId;
+    }
+}
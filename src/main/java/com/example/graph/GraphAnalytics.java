@@ -0,0 +1,311 @@
+package com.example.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 血缘图的离线分析：传递上下游数量、PageRank 重要度、距源头的最长路径深度。
+ * 输入是某一时刻索引的压缩邻接表（CSR，去重、无自环），计算过程不持有索引的锁。
+ * <p>
+ * 环会让“上下游数量/最长路径”失去意义，所以先用 Tarjan 求强连通分量，
+ * 在缩点后的 DAG 上计算：同一分量内的表互为上下游，深度相同。
+ * 过程节点不计入上下游数量，也不增加深度。
+ */
+public final class GraphAnalytics {
+
+    private static final double DAMPING = 0.85;
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1e-9;
+
+    /** 某一时刻的压缩邻接表：节点 i 的后继为 adj[off[i] .. off[i+1]) */
+    public static class Csr {
+        public final int[] nodeIds;   // 稠密下标 -> 表名字典 id
+        public final boolean[] process;
+        public final int[] off;
+        public final int[] adj;
+        public final long epoch;
+
+        Csr(int[] nodeIds, boolean[] process, int[] off, int[] adj, long epoch) {
+            this.nodeIds = nodeIds;
+            this.process = process;
+            this.off = off;
+            this.adj = adj;
+            this.epoch = epoch;
+        }
+
+        public int size() {
+            return nodeIds.length;
+        }
+    }
+
+    /** 分析结果（按稠密下标） */
+    public static class Result {
+        public final int[] upstream;
+        public final int[] downstream;
+        public final double[] pageRank;
+        public final int[] depth;
+        public final int componentCount;
+
+        Result(int[] upstream, int[] downstream, double[] pageRank, int[] depth, int componentCount) {
+            this.upstream = upstream;
+            this.downstream = downstream;
+            this.pageRank = pageRank;
+            this.depth = depth;
+            this.componentCount = componentCount;
+        }
+    }
+
+    private GraphAnalytics() { }
+
+    /** 在读锁内拷出当前有效边的邻接表 */
+    public static Csr snapshot(LineageGraphIndex index) {
+        return index.read(() -> {
+            int bound = index.nodeBound();
+            int[] dense = new int[bound];
+            int n = 0;
+            for (int v = 0; v < bound; v++) {
+                dense[v] = index.hasNode(v) ? n++ : -1;
+            }
+            int[] nodeIds = new int[n];
+            boolean[] process = new boolean[n];
+            for (int v = 0; v < bound; v++) {
+                if (dense[v] >= 0) {
+                    nodeIds[dense[v]] = v;
+                    process[dense[v]] = index.isProcess(v);
+                }
+            }
+            int[] off = new int[n + 1];
+            IntArrayList adj = new IntArrayList(Math.max(16, index.rowCount()));
+            int[] buf = new int[16];
+            for (int i = 0; i < n; i++) {
+                IntArrayList outs = index.outRows(nodeIds[i]);
+                if (buf.length < outs.size()) {
+                    buf = new int[outs.size()];
+                }
+                int k = 0;
+                for (int j = 0; j < outs.size(); j++) {
+                    int row = outs.get(j);
+                    int t = dense[index.target(row)];
+                    if (index.isLive(row, LineageGraphIndex.CURRENT) && t != i) {
+                        buf[k++] = t;
+                    }
+                }
+                Arrays.sort(buf, 0, k);
+                for (int j = 0; j < k; j++) {
+                    if (j == 0 || buf[j] != buf[j - 1]) {
+                        adj.add(buf[j]);
+                    }
+                }
+                off[i + 1] = adj.size();
+            }
+            return new Csr(nodeIds, process, off, adj.toArray(), index.epoch());
+        });
+    }
+
+    /** 全部指标；逐节点的可达性统计在 pool 里并行 */
+    public static Result compute(Csr g, ForkJoinPool pool) throws Exception {
+        int n = g.size();
+        int[] comp = new int[n];
+        int c = tarjan(n, g.off, g.adj, comp);
+        int[] compSize = new int[c];   // 分量内的表数（不含过程节点）
+        for (int v = 0; v < n; v++) {
+            if (!g.process[v]) {
+                compSize[comp[v]]++;
+            }
+        }
+
+        // 缩点 DAG（正向 + 反向）
+        int[][] dag = condense(n, g.off, g.adj, comp, c, false);
+        int[][] rdag = condense(n, g.off, g.adj, comp, c, true);
+
+        int[] down = new int[c];
+        int[] up = new int[c];
+        pool.submit(() -> IntStream.range(0, c).parallel().forEach(x -> {
+            down[x] = reachable(x, dag, compSize) + Math.max(0, compSize[x] - 1);
+            up[x] = reachable(x, rdag, compSize) + Math.max(0, compSize[x] - 1);
+        })).get();
+
+        // Tarjan 先完成的是汇点分量：分量编号从大到小即拓扑序
+        int[] compDepth = new int[c];
+        for (int x = c - 1; x >= 0; x--) {
+            for (int j = dag[0][x]; j < dag[0][x + 1]; j++) {
+                int y = dag[1][j];
+                compDepth[y] = Math.max(compDepth[y], compDepth[x] + (compSize[y] > 0 ? 1 : 0));
+            }
+        }
+
+        int[] upstream = new int[n], downstream = new int[n], depth = new int[n];
+        for (int v = 0; v < n; v++) {
+            upstream[v] = up[comp[v]];
+            downstream[v] = down[comp[v]];
+            depth[v] = compDepth[comp[v]];
+        }
+        return new Result(upstream, downstream, pageRank(g, pool), depth, c);
+    }
+
+    /**
+     * PageRank 沿“依赖”方向传播：下游表把分数分给它读取的来源表，
+     * 被越多（越重要的）表依赖的来源表得分越高。无人依赖的表把分数平均分给全图。
+     */
+    static double[] pageRank(Csr g, ForkJoinPool pool) throws Exception {
+        int n = g.size();
+        if (n == 0) {
+            return new double[0];
+        }
+        int[] inDeg = new int[n];
+        for (int t : g.adj) {
+            inDeg[t]++;
+        }
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        for (int it = 0; it < MAX_ITERATIONS; it++) {
+            double dangling = 0;
+            for (int v = 0; v < n; v++) {
+                if (inDeg[v] == 0) {
+                    dangling += rank[v];
+                }
+            }
+            double base = (1 - DAMPING) / n + DAMPING * dangling / n;
+            double[] cur = rank, out = next;
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(v -> {
+                double sum = 0;
+                for (int j = g.off[v]; j < g.off[v + 1]; j++) {
+                    int t = g.adj[j];
+                    sum += cur[t] / inDeg[t];
+                }
+                out[v] = base + DAMPING * sum;
+            })).get();
+            double delta = 0;
+            for (int v = 0; v < n; v++) {
+                delta += Math.abs(next[v] - rank[v]);
+            }
+            double[] tmp = rank;
+            rank = next;
+            next = tmp;
+            if (delta < TOLERANCE) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /** 迭代版 Tarjan；返回分量个数，comp[v] 为所属分量（先完成的编号小） */
+    static int tarjan(int n, int[] off, int[] adj, int[] comp) {
+        int[] idx = new int[n], low = new int[n];
+        Arrays.fill(idx, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callNode = new int[n], callEdge = new int[n];
+        int sp = 0, counter = 0, count = 0;
+        for (int s = 0; s < n; s++) {
+            if (idx[s] >= 0) {
+                continue;
+            }
+            int csp = 0;
+            idx[s] = low[s] = counter++;
+            stack[sp++] = s;
+            onStack[s] = true;
+            callNode[csp] = s;
+            callEdge[csp++] = off[s];
+            while (csp > 0) {
+                int v = callNode[csp - 1];
+                if (callEdge[csp - 1] < off[v + 1]) {
+                    int w = adj[callEdge[csp - 1]++];
+                    if (idx[w] < 0) {
+                        idx[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callNode[csp] = w;
+                        callEdge[csp++] = off[w];
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], idx[w]);
+                    }
+                    continue;
+                }
+                if (low[v] == idx[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        comp[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                if (--csp > 0) {
+                    int u = callNode[csp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** 缩点后的邻接表 {off, adj}，reverse 为 true 时取反向边 */
+    private static int[][] condense(int n, int[] off, int[] adj, int[] comp, int c, boolean reverse) {
+        long[] keys = new long[adj.length];
+        int k = 0;
+        for (int v = 0; v < n; v++) {
+            for (int j = off[v]; j < off[v + 1]; j++) {
+                int a = comp[v], b = comp[adj[j]];
+                if (a != b) {
+                    keys[k++] = reverse ? ((long) b << 32) | a : ((long) a << 32) | b;
+                }
+            }
+        }
+        Arrays.sort(keys, 0, k);
+        int[] coff = new int[c + 1];
+        IntArrayList cadj = new IntArrayList(Math.max(16, k));
+        for (int j = 0; j < k; j++) {
+            if (j > 0 && keys[j] == keys[j - 1]) {
+                continue;
+            }
+            coff[(int) (keys[j] >>> 32) + 1]++;
+            cadj.add((int) keys[j]);
+        }
+        for (int x = 0; x < c; x++) {
+            coff[x + 1] += coff[x];
+        }
+        return new int[][]{coff, cadj.toArray()};
+    }
+
+    /** 从分量 x 出发在 DAG 上可达的其他分量的表数之和（每个工作线程复用自己的访问标记） */
+    private static int reachable(int x, int[][] dag, int[] compSize) {
+        Marks m = MARKS.get();
+        m.ensure(compSize.length);
+        int stamp = ++m.stamp;
+        int[] queue = m.queue;
+        int head = 0, tail = 0, total = 0;
+        queue[tail++] = x;
+        m.mark[x] = stamp;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int j = dag[0][u]; j < dag[0][u + 1]; j++) {
+                int y = dag[1][j];
+                if (m.mark[y] != stamp) {
+                    m.mark[y] = stamp;
+                    queue[tail++] = y;
+                    total += compSize[y];
+                }
+            }
+        }
+        return total;
+    }
+
+    private static final ThreadLocal<Marks> MARKS = ThreadLocal.withInitial(Marks::new);
+
+    private static class Marks {
+        int[] mark = new int[0];
+        int[] queue = new int[0];
+        int stamp;
+
+        void ensure(int n) {
+            if (mark.length < n) {
+                mark = new int[n];
+                queue = new int[n];
+                stamp = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常驻图索引的磁盘快照（紧凑二进制，启动时内存映射读取）：
+ * <pre>
+ * magic(int) version(int) lastRunId(long) writtenAt(long, epoch millis)
+ * nodeCount(int) { nameLen(int) name(utf8) typeLen(int) type(utf8) } * nodeCount
+ * edgeCount(int) edgeId(long[]) source(int[]) target(int[]) runId(long[]) retiredRunId(long[])
+ * </pre>
+ * 节点编号是快照内的局部编号，加载时重新映射到当前进程的表名字典 id。
+ */
+public final class GraphSnapshot {
+
+    private static final int MAGIC = 0x4C4E4753; // "LNGS"
+    private static final int VERSION = 2;
+
+    /** 快照头信息 */
+    public static class Header {
+        public final long lastRunId;
+        public final long writtenAt;
+        public final int edgeCount;
+
+        Header(long lastRunId, long writtenAt, int edgeCount) {
+            this.lastRunId = lastRunId;
+            this.writtenAt = writtenAt;
+            this.edgeCount = edgeCount;
+        }
+    }
+
+    private GraphSnapshot() { }
+
+    /** 在读锁内把索引写入临时文件，再原子替换目标文件 */
+    public static Header write(LineageGraphIndex index, Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Header header;
+        try (OutputStream os = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            header = index.read(() -> {
+                try {
+                    return writeLocked(index, out);
+                } catch (IOException e) {
+                    throw new SnapshotIOException(e);
+                }
+            });
+        } catch (SnapshotIOException e) {
+            throw (IOException) e.getCause();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return header;
+    }
+
+    private static Header writeLocked(LineageGraphIndex index, DataOutputStream out) throws IOException {
+        int bound = index.nodeBound();
+        int[] local = new int[bound];
+        int nodeCount = 0;
+        for (int n = 0; n < bound; n++) {
+            local[n] = index.hasNode(n) ? nodeCount++ : -1;
+        }
+        long lastRunId = index.lastRunId();
+        long writtenAt = System.currentTimeMillis();
+        int edgeCount = index.rowCount();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(lastRunId);
+        out.writeLong(writtenAt);
+        out.writeInt(nodeCount);
+        for (int n = 0; n < bound; n++) {
+            if (local[n] >= 0) {
+                writeString(out, index.name(n));
+                writeString(out, index.type(n));
+            }
+        }
+        out.writeInt(edgeCount);
+        for (int r = 0; r < edgeCount; r++) {
+            out.writeLong(index.edgeId(r));
+        }
+        for (int r = 0; r < edgeCount; r++) {
+            out.writeInt(local[index.source(r)]);
+        }
+        for (int r = 0; r < edgeCount; r++) {
+            out.writeInt(local[index.target(r)]);
+        }
+        for (int r = 0; r < edgeCount; r++) {
+            out.writeLong(index.runId(r));
+        }
+        for (int r = 0; r < edgeCount; r++) {
+            out.writeLong(index.retiredRunId(r));
+        }
+        return new Header(lastRunId, writtenAt, edgeCount);
+    }
+
+    /** 内存映射读取快照并灌入索引；文件不存在返回 null */
+    public static Header load(Path file, LineageGraphIndex index) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("不是可识别的血缘图快照: " + file);
+            }
+            long lastRunId = buf.getLong();
+            long writtenAt = buf.getLong();
+
+            int nodeCount = buf.getInt();
+            String[] nodeNames = new String[nodeCount];
+            String[] nodeTypes = new String[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                nodeNames[i] = readString(buf);
+                nodeTypes[i] = readString(buf);
+            }
+
+            int edgeCount = buf.getInt();
+            long[] edgeIds = new long[edgeCount];
+            int[] src = new int[edgeCount];
+            int[] tgt = new int[edgeCount];
+            long[] runIds = new long[edgeCount];
+            long[] retired = new long[edgeCount];
+            buf.asLongBuffer().get(edgeIds);
+            buf.position(buf.position() + edgeCount * 8);
+            buf.asIntBuffer().get(src);
+            buf.position(buf.position() + edgeCount * 4);
+            buf.asIntBuffer().get(tgt);
+            buf.position(buf.position() + edgeCount * 4);
+            buf.asLongBuffer().get(runIds);
+            buf.position(buf.position() + edgeCount * 8);
+            buf.asLongBuffer().get(retired);
+
+            List<EdgeRecord> edges = new ArrayList<>(edgeCount);
+            for (int r = 0; r < edgeCount; r++) {
+                edges.add(new EdgeRecord(edgeIds[r], nodeNames[src[r]], nodeTypes[src[r]],
+                        nodeNames[tgt[r]], nodeTypes[tgt[r]], runIds[r], retired[r]));
+            }
+            index.addEdges(edges);
+            return new Header(lastRunId, writtenAt, edgeCount);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(MappedByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** 把 IOException 带出读锁回调 */
+    private static class SnapshotIOException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SnapshotIOException(IOException cause) {
+            super(cause);
+        }
+    }
+}
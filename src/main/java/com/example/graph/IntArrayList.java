@@ -0,0 +1,60 @@
+package com.example.graph;
+
+import java.util.Arrays;
+
+/** 不装箱的 int 动态数组（邻接表用） */
+public final class IntArrayList {
+    private int[] data;
+    private int size;
+
+    public IntArrayList() {
+        this(4);
+    }
+
+    public IntArrayList(int capacity) {
+        this.data = new int[Math.max(1, capacity)];
+    }
+
+    public void add(int v) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = v;
+    }
+
+    public int get(int i) {
+        return data[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** 移除并返回最后一个元素 */
+    public int removeLast() {
+        return data[--size];
+    }
+
+    /** 删除第一个等于 v 的元素（用末尾元素填位，不保持顺序）；返回是否找到 */
+    public boolean removeValue(int v) {
+        for (int i = 0; i < size; i++) {
+            if (data[i] == v) {
+                data[i] = data[--size];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.graph;
+
+import com.example.model.TableNameDictionary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 常驻内存的血缘图索引：节点用表名字典的 int id，边按行存成并列数组，
+ * 每个节点挂出边/入边的行号列表。写入按边 id 幂等，读写由读写锁保护。
+ * 遍历类查询通过 {@link #read(Supplier)} 在读锁内调用各访问方法。
+ * <p>
+ * 每行带有效区间 [runId, retiredRunId)（以 run id 计），历史边不删除，只被关闭；
+ * 按某个 run 回看时只需在遍历时比较两个 long，代价与查当前状态相同。
+ * <p>
+ * 当前有效的边同时喂给 {@link DynamicTopoOrder} 增量维护拓扑序；会成环的边照常入索引，
+ * 但不进入拓扑序，并标记为成环边。拓扑序里的边被关闭后，仍有效的成环边会重新尝试加入拓扑序。
+ */
+public class LineageGraphIndex {
+    /** 仍有效的边的 retiredRunId */
+    public static final long OPEN = Long.MAX_VALUE;
+    /** 查询当前状态时使用的 asOf */
+    public static final long CURRENT = Long.MAX_VALUE - 1;
+    /** 过程节点（一条语句）的类型，其余节点都是表/视图 */
+    public static final String PROCESS = "process";
+    /** 先到的关闭最多暂存这么多条，超出时丢弃最早的 */
+    static final int MAX_PENDING_CLOSES = 100_000;
+
+    private final TableNameDictionary names;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 边（按行）
+    private long[] edgeIds = new long[1024];
+    private int[] sources = new int[1024];
+    private int[] targets = new int[1024];
+    private long[] runIds = new long[1024];
+    private long[] retiredRuns = new long[1024];
+    private int rowCount;
+    private final LongIntHashMap rowByEdgeId = new LongIntHashMap(1024);
+    private final DynamicTopoOrder topo = new DynamicTopoOrder();
+    private final BitSet cyclicRows = new BitSet();
+    private final SchemaAggregate schemas = new SchemaAggregate();
+    /** run id -> 该 run 写入的行 / 关闭的行；按 run 找变化时不必扫全部历史 */
+    private final TreeMap<Long, IntArrayList> writtenRows = new TreeMap<>();
+    private final TreeMap<Long, IntArrayList> retiredRows = new TreeMap<>();
+    /**
+     * 并行入库时关闭可能先于写入到达（两次提交的回调交错），先记下，边写入时再关闭。
+     * 永远不会写入的边（如回放窗口之外的）对应的条目有上限，启动回放完成后整体清掉
+     */
+    private final Map<Long, Long> pendingCloses = new LinkedHashMap<Long, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_PENDING_CLOSES;
+        }
+    };
+
+    // 节点（下标 = 表名字典 id）
+    private IntArrayList[] outRows = new IntArrayList[1024];
+    private IntArrayList[] inRows = new IntArrayList[1024];
+    private String[] types = new String[1024];
+    private int[] liveOut = new int[1024];
+    private int[] liveIn = new int[1024];
+
+    private long lastRunId;
+    private long epoch;
+
+    public LineageGraphIndex(TableNameDictionary names) {
+        this.names = names;
+    }
+
+    /* -------------------- 写入 -------------------- */
+
+    /** 写入一条边；已存在（同一边 id）时忽略。返回是否新增 */
+    public boolean addEdge(EdgeRecord e) {
+        lock.writeLock().lock();
+        try {
+            return addEdgeLocked(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int addEdges(Iterable<EdgeRecord> edges) {
+        lock.writeLock().lock();
+        try {
+            int added = 0;
+            for (EdgeRecord e : edges) {
+                if (addEdgeLocked(e)) {
+                    added++;
+                }
+            }
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean addEdgeLocked(EdgeRecord e) {
+        if (rowByEdgeId.get(e.edgeId) >= 0) {
+            return false;
+        }
+        long retired = e.retiredRunId;
+        if (retired == OPEN && !pendingCloses.isEmpty()) {
+            Long pending = pendingCloses.remove(e.edgeId);
+            if (pending != null) {
+                retired = pending;
+            }
+        }
+        int s = node(e.source, e.sourceType);
+        int t = node(e.target, e.targetType);
+        if (rowCount == edgeIds.length) {
+            int cap = rowCount * 2;
+            edgeIds = Arrays.copyOf(edgeIds, cap);
+            sources = Arrays.copyOf(sources, cap);
+            targets = Arrays.copyOf(targets, cap);
+            runIds = Arrays.copyOf(runIds, cap);
+            retiredRuns = Arrays.copyOf(retiredRuns, cap);
+        }
+        int row = rowCount++;
+        edgeIds[row] = e.edgeId;
+        sources[row] = s;
+        targets[row] = t;
+        runIds[row] = e.runId;
+        retiredRuns[row] = retired;
+        rowByEdgeId.put(e.edgeId, row);
+        outRows[s].add(row);
+        inRows[t].add(row);
+        writtenRows.computeIfAbsent(e.runId, k -> new IntArrayList()).add(row);
+        if (retired == OPEN) {
+            liveOut[s]++;
+            liveIn[t]++;
+            if (!topo.addEdge(s, t)) {
+                cyclicRows.set(row);
+            }
+            linkSchemas(s, t, 1);
+        } else {
+            retiredRows.computeIfAbsent(retired, k -> new IntArrayList()).add(row);
+        }
+        if (e.runId > lastRunId) {
+            lastRunId = e.runId;
+        }
+        epoch++;
+        return true;
+    }
+
+    private int node(String name, String type) {
+        int id = names.id(names.canonical(name));
+        if (id >= types.length) {
+            int cap = Math.max(types.length * 2, id + 1);
+            types = Arrays.copyOf(types, cap);
+            outRows = Arrays.copyOf(outRows, cap);
+            inRows = Arrays.copyOf(inRows, cap);
+            liveOut = Arrays.copyOf(liveOut, cap);
+            liveIn = Arrays.copyOf(liveIn, cap);
+        }
+        if (outRows[id] == null) {
+            outRows[id] = new IntArrayList();
+            inRows[id] = new IntArrayList();
+        }
+        if (type != null) {
+            types[id] = type;
+        }
+        if (!isProcess(id)) {
+            schemas.addNode(id, names.name(id));
+        }
+        return id;
+    }
+
+    /**
+     * 有效边 s -> t 出现（delta=1）或失效（-1）时更新库级汇总。
+     * 过程节点不属于任何库：经过它的边按展开后的 来源表 -> 目标表 计入。
+     */
+    private void linkSchemas(int s, int t, int delta) {
+        if (isProcess(t) && !isProcess(s)) {
+            IntArrayList outs = outRows[t];
+            for (int i = 0; i < outs.size(); i++) {
+                int r = outs.get(i);
+                if (retiredRuns[r] == OPEN) {
+                    schemas.pair(s, targets[r], delta);
+                }
+            }
+        } else if (isProcess(s) && !isProcess(t)) {
+            IntArrayList ins = inRows[s];
+            for (int i = 0; i < ins.size(); i++) {
+                int r = ins.get(i);
+                if (retiredRuns[r] == OPEN) {
+                    schemas.pair(sources[r], t, delta);
+                }
+            }
+        } else {
+            schemas.pair(s, t, delta);
+        }
+    }
+
+    /** 关闭一批边（被 retiredRunId 取代）；已关闭的边忽略，尚未写入的边在写入时关闭。返回实际关闭条数 */
+    public int closeEdges(long[] edgeIds, long retiredRunId) {
+        lock.writeLock().lock();
+        try {
+            int closed = 0;
+            boolean topoShrank = false;
+            for (long id : edgeIds) {
+                int row = rowByEdgeId.get(id);
+                if (row < 0) {
+                    pendingCloses.put(id, retiredRunId);
+                    continue;
+                }
+                if (retiredRuns[row] != OPEN) {
+                    continue;
+                }
+                retiredRuns[row] = retiredRunId;
+                retiredRows.computeIfAbsent(retiredRunId, k -> new IntArrayList()).add(row);
+                liveOut[sources[row]]--;
+                liveIn[targets[row]]--;
+                if (!cyclicRows.get(row)) {
+                    topoShrank |= topo.removeEdge(sources[row], targets[row]);
+                } else {
+                    cyclicRows.clear(row); // 只留仍有效的成环边
+                }
+                linkSchemas(sources[row], targets[row], -1);
+                if (retiredRunId > lastRunId) {
+                    lastRunId = retiredRunId;
+                }
+                epoch++;
+                closed++;
+            }
+            if (topoShrank) {
+                retryCyclicRows();
+            }
+            return closed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 丢弃暂存的先到关闭（启动回放完成后调用：此后不会再有回放的边来认领它们）；返回丢弃条数 */
+    public int clearPendingCloses() {
+        lock.writeLock().lock();
+        try {
+            int n = pendingCloses.size();
+            pendingCloses.clear();
+            return n;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 拓扑序少了边：之前被拒的有效成环边可能已不再成环，能加入的加入并去掉成环标记 */
+    private void retryCyclicRows() {
+        for (int r = cyclicRows.nextSetBit(0); r >= 0; r = cyclicRows.nextSetBit(r + 1)) {
+            if (sources[r] != targets[r] && topo.addEdge(sources[r], targets[r])) {
+                cyclicRows.clear(r);
+            }
+        }
+    }
+
+    /* -------------------- 读取 -------------------- */
+
+    /** 在读锁内执行一段查询 */
+    public <T> T read(Supplier<T> body) {
+        lock.readLock().lock();
+        try {
+            return body.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 表名对应的节点 id；索引里没有该节点时返回 -1 */
+    public int nodeId(String name) {
+        int id = name == null ? -1 : names.existingId(name);
+        return (id >= 0 && id < outRows.length && outRows[id] != null) ? id : -1;
+    }
+
+    public String name(int node) {
+        return names.name(node);
+    }
+
+    public String type(int node) {
+        String t = node < types.length ? types[node] : null;
+        return t == null ? "table" : t;
+    }
+
+    public boolean isProcess(int node) {
+        return node < types.length && PROCESS.equals(types[node]);
+    }
+
+    /** 节点 id 上界（不含），用于按 id 分配数组 */
+    public int nodeBound() {
+        return outRows.length;
+    }
+
+    public boolean hasNode(int node) {
+        return node >= 0 && node < outRows.length && outRows[node] != null;
+    }
+
+    public IntArrayList outRows(int node) {
+        return outRows[node];
+    }
+
+    public IntArrayList inRows(int node) {
+        return inRows[node];
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /** 边 id 所在的行；尚未写入返回 -1 */
+    public int rowOf(long edgeId) {
+        return rowByEdgeId.get(edgeId);
+    }
+
+    /** 这些 run 写入的行；需在读锁内调用 */
+    public IntArrayList rowsWrittenBy(long[] runIds) {
+        IntArrayList out = new IntArrayList();
+        for (long runId : runIds) {
+            IntArrayList rows = writtenRows.get(runId);
+            if (rows != null) {
+                for (int i = 0; i < rows.size(); i++) {
+                    out.add(rows.get(i));
+                }
+            }
+        }
+        return out;
+    }
+
+    /** run 区间 (afterRun, uptoRun] 内写入或关闭的行（可能重复）；需在读锁内调用 */
+    public IntArrayList rowsChangedBetween(long afterRun, long uptoRun) {
+        IntArrayList out = new IntArrayList();
+        if (afterRun >= uptoRun) {
+            return out;
+        }
+        for (TreeMap<Long, IntArrayList> byRun : Arrays.asList(writtenRows, retiredRows)) {
+            for (IntArrayList rows : byRun.subMap(afterRun, false, uptoRun, true).values()) {
+                for (int i = 0; i < rows.size(); i++) {
+                    out.add(rows.get(i));
+                }
+            }
+        }
+        return out;
+    }
+
+    public long edgeId(int row) {
+        return edgeIds[row];
+    }
+
+    public int source(int row) {
+        return sources[row];
+    }
+
+    public int target(int row) {
+        return targets[row];
+    }
+
+    public long runId(int row) {
+        return runIds[row];
+    }
+
+    public long retiredRunId(int row) {
+        return retiredRuns[row];
+    }
+
+    /** 该行在 asOfRun 时是否有效：由不晚于 asOfRun 的 run 写入，且尚未被不晚于 asOfRun 的 run 关闭 */
+    public boolean isLive(int row, long asOfRun) {
+        return runIds[row] <= asOfRun && retiredRuns[row] > asOfRun;
+    }
+
+    /** 当前有效的入边数 */
+    public long inDegree(String name) {
+        return read(() -> {
+            int id = nodeId(name);
+            return id < 0 ? 0L : (long) liveIn[id];
+        });
+    }
+
+    /** 当前有效的出边数 */
+    public long outDegree(String name) {
+        return read(() -> {
+            int id = nodeId(name);
+            return id < 0 ? 0L : (long) liveOut[id];
+        });
+    }
+
+    /** 当前有效边的拓扑序（节点 id，上游在前），只含仍有拓扑序内有效边的节点；需在读锁内调用 */
+    public int[] topoOrder() {
+        return topo.order();
+    }
+
+    /** 库级汇总；需在读锁内使用 */
+    public SchemaAggregate schemas() {
+        return schemas;
+    }
+
+    /** 当前会成环、因而没有进入拓扑序的有效行；从 fromRow 开始找下一个，没有返回 -1 */
+    public int nextCyclicRow(int fromRow) {
+        return cyclicRows.nextSetBit(fromRow);
+    }
+
+    public long lastRunId() {
+        return read(() -> lastRunId);
+    }
+
+    /** 每次写入递增，用于判断是否需要重新落快照 / 作为变更序号 */
+    public long epoch() {
+        return read(() -> epoch);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按库（规范表名中最后一个 '.' 之前的部分）汇总的血缘概览，随边的写入/关闭增量维护。
+ * 库 A -> 库 B 的权重 = 当前有效的、A 中表到 B 中表的不同 (来源表, 目标表) 个数；
+ * 同一对表被多条边（多个 run）产出时只算一次。每个库对同时保留这些表对，供下钻直接读取；
+ * 库的表数只计当前有有效边的表。
+ * <p>
+ * 非线程安全，由 {@link LineageGraphIndex} 的写锁保护。
+ */
+public final class SchemaAggregate {
+
+    /** 不带库名的表归入 Hive 的默认库 */
+    public static final String DEFAULT_SCHEMA = "default";
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    /** 库 -> 有有效边的表数 */
+    private int[] liveMembers = new int[16];
+    private int[] schemaOfNode = new int[1024];
+    /** 表 -> 涉及它的有效表对数（作来源或目标） */
+    private int[] degree = new int[1024];
+    /** (来源表, 目标表) -> 有效引用数；降到 0 即删除 */
+    private final LongIntHashMap tablePairs = new LongIntHashMap(1024);
+    /** (来源库, 目标库) -> 当前有效的表对，集合大小即权重 */
+    private final Map<Long, Set<Long>> pairsBySchema = new HashMap<>();
+
+    public SchemaAggregate() {
+        Arrays.fill(schemaOfNode, -1);
+    }
+
+    public static String schemaName(String table) {
+        int i = table.lastIndexOf('.');
+        return i > 0 ? table.substring(0, i) : DEFAULT_SCHEMA;
+    }
+
+    /** 登记一张表（过程节点不登记）；重复登记忽略 */
+    public void addNode(int node, String name) {
+        if (node >= schemaOfNode.length) {
+            int old = schemaOfNode.length;
+            schemaOfNode = Arrays.copyOf(schemaOfNode, Math.max(old * 2, node + 1));
+            Arrays.fill(schemaOfNode, old, schemaOfNode.length, -1);
+            degree = Arrays.copyOf(degree, schemaOfNode.length);
+        }
+        if (schemaOfNode[node] >= 0) {
+            return;
+        }
+        String schema = schemaName(name);
+        Integer id = ids.get(schema);
+        if (id == null) {
+            id = names.size();
+            ids.put(schema, id);
+            names.add(schema);
+            if (id == liveMembers.length) {
+                liveMembers = Arrays.copyOf(liveMembers, id * 2);
+            }
+        }
+        schemaOfNode[node] = id;
+    }
+
+    /** 表 s -> t 多（delta=1）或少（-1）了一个有效来源；从无到有、从有到无时调整库对的表对集合与表数 */
+    void pair(int s, int t, int delta) {
+        if (s == t || schemaOf(s) < 0 || schemaOf(t) < 0) {
+            return;
+        }
+        long key = ((long) s << 32) | t;
+        int before = Math.max(0, tablePairs.get(key));
+        int after = Math.max(0, before + delta);
+        if (after > 0) {
+            tablePairs.put(key, after);
+        } else if (before > 0) {
+            tablePairs.remove(key);
+        }
+        if ((before == 0) == (after == 0)) {
+            return;
+        }
+        long schemaKey = ((long) schemaOfNode[s] << 32) | schemaOfNode[t];
+        if (after > 0) {
+            pairsBySchema.computeIfAbsent(schemaKey, k -> new LinkedHashSet<>()).add(key);
+        } else {
+            Set<Long> pairs = pairsBySchema.get(schemaKey);
+            pairs.remove(key);
+            if (pairs.isEmpty()) {
+                pairsBySchema.remove(schemaKey);
+            }
+        }
+        touch(s, after > 0 ? 1 : -1);
+        touch(t, after > 0 ? 1 : -1);
+    }
+
+    private void touch(int node, int delta) {
+        int before = degree[node];
+        degree[node] = before + delta;
+        if (before == 0 || degree[node] == 0) {
+            liveMembers[schemaOfNode[node]] += delta;
+        }
+    }
+
+    /** 表所在的库编号；未登记（过程节点）返回 -1 */
+    public int schemaOf(int node) {
+        return node < schemaOfNode.length ? schemaOfNode[node] : -1;
+    }
+
+    /** 库编号；不存在返回 -1 */
+    public int schemaId(String schema) {
+        Integer id = ids.get(schema);
+        return id == null ? -1 : id;
+    }
+
+    public String schema(int id) {
+        return names.get(id);
+    }
+
+    public int schemaCount() {
+        return names.size();
+    }
+
+    /** 该库当前有有效边的表数 */
+    public int memberCount(int schema) {
+        return liveMembers[schema];
+    }
+
+    /** 库 from -> 库 to 当前有效的表对（高 32 位来源表、低 32 位目标表），按首次出现的顺序 */
+    public Collection<Long> tablePairs(int from, int to) {
+        Set<Long> pairs = pairsBySchema.get(((long) from << 32) | to);
+        return pairs == null ? Collections.<Long>emptySet() : Collections.unmodifiableSet(pairs);
+    }
+
+    /** 当前全部库级边：{来源库, 目标库, 权重} */
+    public List<int[]> edges() {
+        List<int[]> out = new ArrayList<>(pairsBySchema.size());
+        for (Map.Entry<Long, Set<Long>> e : pairsBySchema.entrySet()) {
+            out.add(new int[]{(int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue().size()});
+        }
+        return out;
+    }
+}
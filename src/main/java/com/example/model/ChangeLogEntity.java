@@ -0,0 +1,33 @@
+package com.example.model;
+
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * 血缘变更日志（只追加）：每次入库在同一事务里写一行，seq 递增。
+ * 其他实例按 seq 追读，把该 run 新增/关闭的边应用到各自的常驻图索引。
+ */
+@Entity
+@Table(name = "ln_change_log", indexes = {
+        @Index(name = "idx_change_log_created", columnList = "created_at")
+})
+@Getter @Setter @NoArgsConstructor
+public class ChangeLogEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    /** 写入该 run 的实例；实例跳过自己写的记录（提交时已应用） */
+    @Column(name = "instance_id", nullable = false, length = 64)
+    private String instanceId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+}
@@ -12,7 +12,8 @@ import java.time.Instant;
         indexes = {
                 @Index(name="idx_edge_src", columnList="source_id"),
                 @Index(name="idx_edge_tgt", columnList="target_id"),
-                @Index(name="idx_edge_run", columnList="run_id")
+                @Index(name="idx_edge_run", columnList="run_id"),
+                @Index(name="idx_edge_valid_to_run", columnList="valid_to_run")
         })
 @Getter @Setter @NoArgsConstructor
 public class EdgeEntity {
@@ -38,6 +39,14 @@ public class EdgeEntity {
     @Column(length = 64)
     private String stepLabel;
 
+    /** 有效期起点即 run / createdAt；以下两列为终点，为空表示当前仍有效 */
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
+
+    /** 使该边失效的 run（被取代的那次 run 之后的新 run） */
+    @Column(name = "valid_to_run")
+    private Long validToRun;
+
+    @Column
+    private Instant validTo;
 }
@@ -0,0 +1,22 @@
+package com.example.model;
+
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/** 每个作业一行，作业增量入库时 SELECT ... FOR UPDATE 这一行，同一作业的入库依次求差 */
+@Entity
+@Table(name = "ln_job_lock")
+@Getter @Setter @NoArgsConstructor
+public class JobLockEntity {
+    /** 与 ln_run.job_key 对应 */
+    @Id
+    @Column(name = "job_key", length = 128)
+    private String jobKey;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+}
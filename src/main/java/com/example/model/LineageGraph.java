@@ -27,6 +27,8 @@ public class LineageGraph {
         private Integer stmtIndex; // 用于“过程节点分组”
     }
 
+    private static final TableNameDictionary NAMES = TableNameDictionary.global();
+
     private final Map<String, Node> nodeMap = new LinkedHashMap<>();
     private final List<Edge> edges = new ArrayList<>();
 
@@ -35,8 +37,10 @@ public class LineageGraph {
     }
 
     public void addNode(String id, String label, String type) {
-        if (!nodeMap.containsKey(id)) {
-            nodeMap.put(id, new Node(id, label, type));
+        // 节点 id 统一驻留，图里与解析器/持久化层共享同一个字符串实例
+        String key = NAMES.canonical(id);
+        if (key != null && !nodeMap.containsKey(key)) {
+            nodeMap.put(key, new Node(key, label, type));
         }
     }
 
@@ -45,7 +49,7 @@ public class LineageGraph {
     }
 
     public void addEdge(String src, String tgt, Integer stmtIndex) {
-        edges.add(new Edge(src, tgt, stmtIndex));
+        edges.add(new Edge(NAMES.canonical(src), NAMES.canonical(tgt), stmtIndex));
     }
 
     public List<Node> getNodes() {
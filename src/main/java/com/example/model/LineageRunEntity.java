@@ -8,7 +8,10 @@ import lombok.Setter;
 import java.time.Instant;
 
 @Entity
-@Table(name = "ln_run")
+@Table(name = "ln_run", indexes = {
+        @Index(name = "idx_run_hash", columnList = "sql_hash"),
+        @Index(name = "idx_run_job", columnList = "job_key")
+})
 @Getter @Setter @NoArgsConstructor
 public class LineageRunEntity {
     @Id
@@ -18,15 +21,19 @@ public class LineageRunEntity {
     @Column(nullable=false)
     private Instant createdAt = Instant.now();
 
-    /** 显式指定 LONGTEXT，避免方言/历史表结构导致的 TEXT/VARCHAR */
+    /** 仅历史数据使用；新 run 的正文按 sqlHash 存在 ln_sql_blob（压缩、去重） */
     @Lob
-    @Column(name = "sql_text", columnDefinition = "LONGTEXT", nullable = false)
+    @Column(name = "sql_text", columnDefinition = "LONGTEXT")
     private String sqlText;
 
 
-    /** SHA-256 十六进制长度固定 64 */
-    @Column(length = 64)
+    /** SHA-256 十六进制长度固定 64；同时是 ln_sql_blob 的主键 */
+    @Column(name = "sql_hash", length = 64)
     private String sqlHash;
 
     private Integer stmtCount;
+
+    /** 作业标识（同一 ETL 脚本的不同版本共用）；为空表示一次性提交 */
+    @Column(name = "job_key", length = 128)
+    private String jobKey;
 }
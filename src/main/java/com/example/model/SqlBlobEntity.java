@@ -0,0 +1,34 @@
+package com.example.model;
+
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/** 按内容哈希去重、压缩存储的 SQL 脚本正文（ln_run 只引用哈希） */
+@Entity
+@Table(name = "ln_sql_blob")
+@Getter @Setter @NoArgsConstructor
+public class SqlBlobEntity {
+    /** SHA-256 十六进制，与 ln_run.sql_hash 对应 */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /** 压缩算法：deflate */
+    @Column(nullable = false, length = 16)
+    private String codec;
+
+    /** 原文字符数 */
+    @Column(nullable = false)
+    private Integer rawLength;
+
+    @Lob
+    @Column(name = "data", columnDefinition = "LONGBLOB", nullable = false)
+    private byte[] data;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+}
@@ -0,0 +1,31 @@
+package com.example.model;
+
+import javax.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** 语句在脚本原文中的字符区间 [startPos, endPos)，与 ln_edge.stmt_index 对应 */
+@Entity
+@Table(name = "ln_stmt_span", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stmt_span_run_idx", columnNames = {"run_id", "stmt_index"})
+})
+@Getter @Setter @NoArgsConstructor
+public class StatementSpanEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "run_id")
+    private LineageRunEntity run;
+
+    @Column(name = "stmt_index", nullable = false)
+    private Integer stmtIndex;
+
+    @Column(nullable = false)
+    private Integer startPos;
+
+    @Column(nullable = false)
+    private Integer endPos;
+}
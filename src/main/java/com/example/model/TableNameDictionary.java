@@ -0,0 +1,137 @@
+package com.example.model;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表名字典：统一的表名规范化（去引号 → 合并库表分隔 → 小写）并缓存原始写法到规范名的映射，
+ * 同时把规范名驻留为稳定的 int id。解析器、图构建和持久化共用同一个实例，
+ * 同一张表在各层拿到的是同一个 String 实例 / 同一个 id。
+ */
+public class TableNameDictionary {
+
+    private static final TableNameDictionary GLOBAL = new TableNameDictionary(100_000);
+
+    public static TableNameDictionary global() {
+        return GLOBAL;
+    }
+
+    /** 原始写法 -> 规范名；写法种类有限，超过上限时整体清空重建 */
+    private final ConcurrentHashMap<String, String> rawToCanonical = new ConcurrentHashMap<>();
+    private final int rawCacheLimit;
+
+    /** 规范名 -> id；id -> 规范名 */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    public TableNameDictionary(int rawCacheLimit) {
+        this.rawCacheLimit = rawCacheLimit;
+    }
+
+    /** 规范化并驻留；null/空白返回 null */
+    public String canonical(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String hit = rawToCanonical.get(raw);
+        if (hit != null) {
+            return hit;
+        }
+        String n = isCanonical(raw) ? raw : normalize(raw);
+        if (n.isEmpty()) {
+            return null;
+        }
+        n = name(id(n));
+        if (rawToCanonical.size() >= rawCacheLimit) {
+            rawToCanonical.clear();
+        }
+        rawToCanonical.put(raw, n);
+        return n;
+    }
+
+    /**
+     * 只规范化、不驻留（给读接口用，请求里的任意字符串不会进字典）：已登记的表返回驻留的规范名，
+     * 否则返回规范化后的新字符串，按它查 {@link #existingId} 得到 -1；null/空白返回 null
+     */
+    public String lookup(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String hit = rawToCanonical.get(raw);
+        if (hit != null) {
+            return hit;
+        }
+        String n = isCanonical(raw) ? raw : normalize(raw);
+        if (n.isEmpty()) {
+            return null;
+        }
+        int id = existingId(n);
+        return id >= 0 ? name(id) : n;
+    }
+
+    /** 规范名对应的稳定 id（不存在则分配） */
+    public int id(String canonical) {
+        Integer id = ids.get(canonical);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(canonical);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = canonical;
+            id = size++;
+            ids.put(canonical, id);
+            return id;
+        }
+    }
+
+    /** 已分配过的 id；未分配返回 -1，不会新建 */
+    public int existingId(String canonical) {
+        Integer id = ids.get(canonical);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /** 已是规范形态（无引号、无大写、无首尾空白）时可跳过规范化，不产生新字符串 */
+    private static boolean isCanonical(String s) {
+        int n = s.length();
+        if (n == 0 || Character.isWhitespace(s.charAt(0)) || Character.isWhitespace(s.charAt(n - 1))) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '`' || c == '"' || Character.isUpperCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 标准化：去引号 → 合并库表分隔 → 小写 */
+    private static String normalize(String name) {
+        String n = name.trim();
+        StringBuilder sb = new StringBuilder(n.length());
+        for (int i = 0; i < n.length(); i++) {
+            char c = n.charAt(i);
+            if (c == '`' || c == '"') {
+                continue;
+            }
+            sb.append(c);
+        }
+        return sb.toString().trim().toLowerCase(Locale.ROOT);
+    }
+}
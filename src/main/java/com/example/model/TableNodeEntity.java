@@ -21,7 +21,7 @@ public class TableNodeEntity {
     private String name;
 
     @Column(nullable = false, length = 32)
-    private String type = "table"; // table / view / process(不落库)
+    private String type = "table"; // table / view / process（过程节点模式下的语句节点）
 
     @Column(length = 256)
     private String displayName;
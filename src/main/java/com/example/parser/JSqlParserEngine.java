@@ -1,27 +1,78 @@
 package com.example.parser;
 
+import com.example.model.TableNameDictionary;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParser;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.Statements;
 import net.sf.jsqlparser.statement.create.table.CreateTable;
+import net.sf.jsqlparser.statement.create.view.AlterView;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.select.Select;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 public class JSqlParserEngine {
+    public static final String TIER_SIMPLE = "simple";
+    public static final String TIER_COMPLEX = "complex";
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_FAIL = "fail";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+
+    /** 每一档解析结束时回调（用于统计各档成功率/耗时） */
+    public interface TierListener {
+        void onTier(String tier, String outcome, long nanos);
+    }
+
+    /**
+     * 带超时的解析在共享线程池里执行，避免 CCJSqlParserUtil 每次解析都新建一个线程池。
+     * 线程数与排队数都有上限：超时的解析靠 {@link CCJSqlParser#interrupted} 停下，池满时直接判失败走兜底。
+     */
+    private static final int PARSE_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ExecutorService PARSE_POOL = newParsePool();
+
+    private static ExecutorService newParsePool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PARSE_THREADS, PARSE_THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PARSE_THREADS * 64), r -> {
+                    Thread t = new Thread(r, "jsqlparser-budget");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     private final SqlPreprocessor preprocessor;
     private final SourceTableFinder sourceFinder = new SourceTableFinder();
     private final TokenScannerFallback fallback = new TokenScannerFallback();
+    private final long simpleBudgetMs;
+    private final long complexBudgetMs;
+    private TierListener tierListener = (tier, outcome, nanos) -> { };
 
     public JSqlParserEngine(SqlPreprocessor preprocessor) {
+        this(preprocessor, 1000L, 6000L);
+    }
+
+    /**
+     * @param simpleBudgetMs  简单模式（不开启 complex parsing）的时间预算，<=0 表示在当前线程内不限时解析
+     * @param complexBudgetMs 复杂模式的时间预算，<=0 含义同上
+     */
+    public JSqlParserEngine(SqlPreprocessor preprocessor, long simpleBudgetMs, long complexBudgetMs) {
         this.preprocessor = preprocessor;
+        this.simpleBudgetMs = simpleBudgetMs;
+        this.complexBudgetMs = complexBudgetMs;
+    }
+
+    public void setTierListener(TierListener tierListener) {
+        this.tierListener = tierListener == null ? (tier, outcome, nanos) -> { } : tierListener;
     }
 
     public List<Statement> parseStatements(String sql) throws Exception {
         // 如果有预处理器，先对 SQL 进行预处理；否则直接使用原始 SQL
-        String pre = preprocessor == null ? sql : preprocessor.preprocess(sql);
+        String pre = preprocess(sql);
 
         // 使用 CCJSqlParser 库解析预处理后的 SQL 字符串
         Statements statements = CCJSqlParserUtil.parseStatements(pre);
@@ -30,19 +81,93 @@ public class JSqlParserEngine {
         return statements.getStatements();
     }
 
+    public String preprocess(String sql) {
+        return preprocessor == null ? sql : preprocessor.preprocess(sql);
+    }
+
+    /**
+     * 解析单条已预处理的语句：先用简单模式（便宜，覆盖常见的 INSERT-SELECT），
+     * 失败后再升级到复杂模式；两档各有独立的时间预算。
+     */
+    public Statement parseStatement(String pre) throws Exception {
+        try {
+            return parseTier(pre, false, simpleBudgetMs);
+        } catch (JSQLParserException simpleFailure) {
+            // 与 CCJSqlParserUtil 一致：嵌套过深的语句不再尝试复杂模式
+            if (CCJSqlParserUtil.getNestingDepth(pre) > CCJSqlParserUtil.ALLOWED_NESTING_DEPTH) {
+                throw simpleFailure;
+            }
+            return parseTier(pre, true, complexBudgetMs);
+        }
+    }
+
+    private Statement parseTier(String pre, boolean complex, long budgetMs) throws JSQLParserException {
+        String tier = complex ? TIER_COMPLEX : TIER_SIMPLE;
+        CCJSqlParser parser = CCJSqlParserUtil.newParser(pre).withAllowComplexParsing(complex);
+        long t0 = System.nanoTime();
+        if (budgetMs <= 0) {
+            try {
+                Statement st = parser.Statement();
+                tierListener.onTier(tier, OUTCOME_OK, System.nanoTime() - t0);
+                return st;
+            } catch (Exception e) {
+                tierListener.onTier(tier, OUTCOME_FAIL, System.nanoTime() - t0);
+                throw new JSQLParserException(e);
+            }
+        }
+
+        Future<Statement> future;
+        try {
+            future = PARSE_POOL.submit(parser::Statement);
+        } catch (RejectedExecutionException e) {
+            tierListener.onTier(tier, OUTCOME_FAIL, System.nanoTime() - t0);
+            throw new JSQLParserException("Parse pool saturated.", e);
+        }
+        try {
+            Statement st = future.get(budgetMs, TimeUnit.MILLISECONDS);
+            tierListener.onTier(tier, OUTCOME_OK, System.nanoTime() - t0);
+            return st;
+        } catch (TimeoutException e) {
+            // JSqlParser 不响应线程中断，只认 interrupted 标记（与 CCJSqlParserUtil 超时时的做法一致）
+            parser.interrupted = true;
+            future.cancel(true);
+            tierListener.onTier(tier, OUTCOME_TIMEOUT, System.nanoTime() - t0);
+            throw new JSQLParserException("Time out occurred.", e);
+        } catch (ExecutionException e) {
+            tierListener.onTier(tier, OUTCOME_FAIL, System.nanoTime() - t0);
+            throw new JSQLParserException(e.getCause());
+        } catch (InterruptedException e) {
+            parser.interrupted = true;
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new JSQLParserException(e);
+        }
+    }
+
+    /** 括号嵌套深度（用于慢语句画像） */
+    public static int nestingDepth(String sql) {
+        return CCJSqlParserUtil.getNestingDepth(sql);
+    }
+
     public Optional<String> extractTargetTable(Statement stmt) {
         if (stmt instanceof Insert) {
             Insert ins = (Insert) stmt;
             Table t = ins.getTable();
             if (t != null) {
-                return Optional.of(normalize(t.getFullyQualifiedName()));
+                return Optional.ofNullable(normalize(t.getFullyQualifiedName()));
             }
         }
         if (stmt instanceof CreateTable) {
             CreateTable ct = (CreateTable) stmt;
             Select sel = ct.getSelect();
             if (sel != null && ct.getTable() != null) {
-                return Optional.of(normalize(ct.getTable().getFullyQualifiedName()));
+                return Optional.ofNullable(normalize(ct.getTable().getFullyQualifiedName()));
+            }
+        }
+        if (stmt instanceof AlterView) {
+            AlterView av = (AlterView) stmt;
+            if (av.getSelectBody() != null && av.getView() != null) {
+                return Optional.ofNullable(normalize(av.getView().getFullyQualifiedName()));
             }
         }
         // 其他类型（如 CREATE VIEW）走兜底
@@ -62,6 +187,11 @@ public class JSqlParserEngine {
             if (ct.getSelect() != null){
                 src.addAll(sourceFinder.getSourceTables(ct.getSelect()));
             }
+        } else if (stmt instanceof AlterView) {
+            AlterView av = (AlterView) stmt;
+            if (av.getSelectBody() != null) {
+                src.addAll(sourceFinder.getSourceTables(new Select().withSelectBody(av.getSelectBody())));
+            }
         } else if (stmt instanceof Select) {
             Select sel = (Select) stmt;
             src.addAll(sourceFinder.getSourceTables(sel));
@@ -74,18 +204,7 @@ public class JSqlParserEngine {
     }
 
     private static String normalize(String name) {
-        if (name == null) {
-            return null;
-        }
-        String n = name.trim();
-        if (n.startsWith("`") && n.endsWith("`")) {
-            n = n.substring(1, n.length() - 1);
-        }
-        if (n.startsWith("\"") && n.endsWith("\"")) {
-            n = n.substring(1, n.length() - 1);
-        }
-        n = n.replace("`.", ".").replace(".`", ".").replace("\".", ".").replace(".\"", ".");
-        return n.toLowerCase(Locale.ROOT);
+        return TableNameDictionary.global().canonical(name);
     }
 
     /** 兜底结果：支持多个目标表（INSERT ALL / Hive 多 INSERT / CREATE VIEW） */
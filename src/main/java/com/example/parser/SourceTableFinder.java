@@ -1,5 +1,6 @@
 package com.example.parser;
 
+import com.example.model.TableNameDictionary;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.Select;
 import net.sf.jsqlparser.util.TablesNamesFinder;
@@ -40,15 +41,12 @@ public class SourceTableFinder {
     }
 
     private boolean isIgnorable(String n) {
+        // n 已是规范名（去空白、小写），null 表示空名
         if (n == null) {
             return true;
         }
-        String s = n.trim().toLowerCase(Locale.ROOT);
-        if (s.isEmpty()) {
-            return true;
-        }
         // 需要的话可以在这里排除系统表
-        return "dual".equals(s);
+        return "dual".equals(n);
     }
 
 
@@ -71,7 +69,7 @@ public class SourceTableFinder {
         Set<String> result = new LinkedHashSet<>();
         for (String t : raw) {
             String n = normalize(t);
-            if (!cteNames.contains(n)) {
+            if (n != null && !cteNames.contains(n)) {
                 result.add(n);
             }
         }
@@ -175,8 +173,9 @@ public class SourceTableFinder {
         List<?> l = (List<?>) list;
         for (Object wi : l) {
             String name = resolveWithItemName(wi);
-            if (name != null) {
-                names.add(normalize(name));
+            String n = name == null ? null : normalize(name);
+            if (n != null) {
+                names.add(n);
             }
         }
     }
@@ -220,16 +219,8 @@ public class SourceTableFinder {
         return null;
     }
 
-    /** 标准化：去引号 → 合并库表分隔 → 小写 */
+    /** 标准化：去引号 → 合并库表分隔 → 小写（统一走表名字典，带缓存与驻留） */
     private String normalize(String name) {
-        String n = name.trim();
-        if (n.startsWith("`") && n.endsWith("`")) {
-            n = n.substring(1, n.length() - 1);
-        }
-        if (n.startsWith("\"") && n.endsWith("\"")) {
-            n = n.substring(1, n.length() - 1);
-        }
-        n = n.replace("`.", ".").replace(".`", ".").replace("\".", ".").replace(".\"", ".");
-        return n.toLowerCase(Locale.ROOT);
+        return TableNameDictionary.global().canonical(name);
     }
 }
@@ -1,5 +1,7 @@
 package com.example.parser;
 
+import com.example.model.TableNameDictionary;
+
 import java.util.Locale;
 
 /**
@@ -7,6 +9,11 @@ import java.util.Locale;
  * @date 2025/8/25 14:49
  **/
 public class SqlPreprocessor {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long CHECK_SEED = 0x6a09e667f3bcc909L;
+    private static final long CHECK_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
     private final boolean enableHiveNormalization;
 
     public SqlPreprocessor(boolean enableHiveNormalization) {
@@ -35,6 +42,136 @@ public class SqlPreprocessor {
         return s;
     }
 
+    /**
+     * 语句指纹（FNV-1a 64 位）：忽略注释/提示、空白、大小写，单引号字符串与数字字面量一律按 ? 计，
+     * 只依次散列剩下的词与符号；一次扫描，不生成中间字符串。
+     * 同一模板每天渲染出的语句（只有分区日期等字面量不同）得到相同指纹。
+     * 指纹用作解析缓存的键，不能丢掉标识符里的任何字符：只有整个词都是数字时才算数字字面量
+     * （1d_sales 这样以数字开头的表名照常散列），双引号内容可能是标识符，按原文散列；
+     * ${var} 这类未渲染的变量同样按原文参与散列——它们可能出现在表名位置。
+     */
+    public static long fingerprint(String sql) {
+        return fingerprints(sql)[0];
+    }
+
+    /**
+     * 同一次扫描同时算出 {指纹, 校验值}：校验值是另一种混合方式得到的独立 64 位散列，
+     * 缓存命中时比对它，指纹偶然相同的两条语句不会拿到对方的解析结果。
+     */
+    public static long[] fingerprints(String sql) {
+        Fingerprint h = new Fingerprint();
+        int n = sql.length();
+        boolean gap = false;      // 上一个 token 之后是否有空白/注释
+        boolean lastWord = false; // 上一个 token 是否是词（两个词之间才需要分隔符）
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            char nx = i + 1 < n ? sql.charAt(i + 1) : '\0';
+            if (Character.isWhitespace(c)) {
+                gap = true;
+                i++;
+            } else if (c == '-' && nx == '-') {
+                while (i < n && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                gap = true;
+            } else if (c == '/' && nx == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                gap = true;
+            } else if (c == '"') {
+                int end = skipQuoted(sql, i, c);
+                h.separator(gap, lastWord);
+                for (; i < end; i++) {
+                    h.add(sql.charAt(i));
+                }
+                gap = false;
+                lastWord = true;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, c);
+                h.separator(gap, lastWord);
+                h.add('?');
+                gap = false;
+                lastWord = true;
+            } else if (c == '`') {
+                // 反引号标识符：散列其中内容（小写），与不加引号的写法等价
+                h.separator(gap, lastWord);
+                for (i++; i < n && sql.charAt(i) != '`'; i++) {
+                    h.add(Character.toLowerCase(sql.charAt(i)));
+                }
+                i++;
+                gap = false;
+                lastWord = true;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                h.separator(gap, lastWord);
+                int start = i;
+                boolean number = Character.isDigit(c);
+                while (i < n) {
+                    char w = sql.charAt(i);
+                    if (!(Character.isLetterOrDigit(w) || w == '_' || w == '$' || (number && w == '.'))) {
+                        break;
+                    }
+                    if (number && w != '.' && !Character.isDigit(w)) {
+                        number = false; // 以数字开头的标识符
+                    }
+                    i++;
+                }
+                if (number) {
+                    h.add('?');
+                } else {
+                    for (int k = start; k < i; k++) {
+                        h.add(Character.toLowerCase(sql.charAt(k)));
+                    }
+                }
+                gap = false;
+                lastWord = true;
+            } else {
+                h.add(c);
+                i++;
+                gap = false;
+                lastWord = false;
+            }
+        }
+        return new long[]{h.fnv, h.check};
+    }
+
+    /** 两路散列的累加器：FNV-1a 与乘加后右移异或的混合，互不相关 */
+    private static final class Fingerprint {
+        long fnv = FNV_OFFSET;
+        long check = CHECK_SEED;
+
+        void add(char c) {
+            fnv = (fnv ^ c) * FNV_PRIME;
+            check = (check + c) * CHECK_MULTIPLIER;
+            check ^= check >>> 29;
+        }
+
+        /** 两个词之间有空白时补一个分隔符 */
+        void separator(boolean gap, boolean lastWord) {
+            if (gap && lastWord) {
+                add(' ');
+            }
+        }
+    }
+
+    /** 跳过以 quote 开头的字面量（支持反斜杠转义与连写两个引号），返回结束引号之后的位置 */
+    private static int skipQuoted(String s, int i, char quote) {
+        int n = s.length();
+        for (i++; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                if (i + 1 < n && s.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i + 1;
+                }
+            }
+        }
+        return n;
+    }
+
     private String removeComments(String s) {
         StringBuilder out = new StringBuilder();
         boolean inSL=false, inML=false, inSQ=false, inDQ=false;
@@ -108,10 +245,8 @@ public class SqlPreprocessor {
                 }
                 i++;
             }
-            String table = s.substring(start, i)
-                    .replace("`.", ".").replace(".`", ".")
-                    .replace("\".", ".").replace(".\"", ".");
-            out.append(table).append(' ');
+            String table = TableNameDictionary.global().canonical(s.substring(start, i));
+            out.append(table == null ? "" : table).append(' ');
             // 跳过紧随其后的 PARTITION(...)
             int save = i;
 
@@ -0,0 +1,93 @@
+package com.example.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把整段脚本按顶层分号切成单条语句，跳过引号/反引号与注释中的分号。
+ * 每段记录其在原始脚本中的字符区间 [start, end)，已去掉首尾空白。
+ */
+public class SqlScriptSplitter {
+
+    /** 单条语句片段 */
+    public static class Segment {
+        public final int ordinal;   // 脚本内序号，从 1 开始
+        public final int start;     // 在原始脚本中的起始偏移（含）
+        public final int end;       // 在原始脚本中的结束偏移（不含）
+        public final String text;
+
+        public Segment(int ordinal, int start, int end, String text) {
+            this.ordinal = ordinal;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+    }
+
+    public List<Segment> split(String sql) {
+        List<Segment> out = new ArrayList<>();
+        if (sql == null) {
+            return out;
+        }
+        int n = sql.length();
+        int segStart = 0;
+        boolean inSL = false, inML = false, inSQ = false, inDQ = false, inBQ = false;
+        boolean hasCode = false; // 当前片段里是否出现过注释以外的内容
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i), nx = (i + 1 < n ? sql.charAt(i + 1) : '\0');
+            if (inSL) {
+                if (c == '\n' || c == '\r') { inSL = false; }
+                continue;
+            }
+            if (inML) {
+                if (c == '*' && nx == '/') { inML = false; i++; }
+                continue;
+            }
+            if (inSQ) {
+                if (c == '\\') { i++; } else if (c == '\'') { inSQ = false; }
+                continue;
+            }
+            if (inDQ) {
+                if (c == '\\') { i++; } else if (c == '"') { inDQ = false; }
+                continue;
+            }
+            if (inBQ) {
+                if (c == '`') { inBQ = false; }
+                continue;
+            }
+            if (c == '-' && nx == '-') { inSL = true; i++; continue; }
+            if (c == '/' && nx == '*') { inML = true; i++; continue; }
+            if (c == ';') {
+                addSegment(out, sql, segStart, i, hasCode);
+                segStart = i + 1;
+                hasCode = false;
+                continue;
+            }
+            if (c == '\'') {
+                inSQ = true;
+            } else if (c == '"') {
+                inDQ = true;
+            } else if (c == '`') {
+                inBQ = true;
+            }
+            if (!Character.isWhitespace(c)) {
+                hasCode = true;
+            }
+        }
+        addSegment(out, sql, segStart, n, hasCode);
+        return out;
+    }
+
+    private static void addSegment(List<Segment> out, String sql, int start, int end, boolean hasCode) {
+        if (!hasCode) {
+            return; // 只有空白或注释
+        }
+        while (start < end && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        out.add(new Segment(out.size() + 1, start, end, sql.substring(start, end)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.parser;
+
+import java.util.Locale;
+
+/**
+ * 按前导关键字给单条（已预处理的）语句分流，避免把注定解析失败的语句交给 JSqlParser：
+ * - SKIP：SET / ADD JAR / USE / MSCK / ALTER（ALTER VIEW ... AS SELECT 除外）/ CREATE FUNCTION 等与血缘无关的语句，直接跳过
+ * - FALLBACK：Hive 多 INSERT、INSERT ALL、LATERAL VIEW、带存储子句的 CTAS 等 JSqlParser 4.x 解析不了的写法
+ * - PARSE：其余语句照常走 JSqlParser
+ */
+public class StatementClassifier {
+
+    public enum Route { SKIP, PARSE, FALLBACK }
+
+    /** 开头即可判定与血缘无关的关键字 */
+    private static final String[] SKIP_LEADING = {
+            "set", "reset", "use", "add", "delete", "msck", "analyze", "show", "describe", "desc", "explain",
+            "refresh", "invalidate", "dfs", "reload", "grant", "revoke", "drop", "truncate", "load",
+            "compute", "source", "alter", "list", "kill", "lock", "unlock", "comment"
+    };
+
+    /** CREATE 之后与血缘无关的对象类型 */
+    private static final String[] SKIP_CREATE_OBJECTS = {
+            "function", "database", "schema", "macro", "role", "index"
+    };
+
+    /** CREATE 与对象类型之间可能出现的修饰词 */
+    private static final String[] CREATE_MODIFIERS = {
+            "or", "replace", "temporary", "temp", "external", "global", "materialized", "transactional"
+    };
+
+    /** Hive 建表存储子句：出现时 JSqlParser 4.x 的 CTAS 解析会失败 */
+    private static final String[] HIVE_TABLE_CLAUSES = {
+            "stored as", "row format", "partitioned by", "clustered by", "tblproperties", "location", "lifecycle"
+    };
+
+    public Route classify(String sql) {
+        if (sql == null) {
+            return Route.SKIP;
+        }
+        String lower = sql.toLowerCase(Locale.ROOT);
+        int p = skipSpacesAndParens(lower, 0);
+        if (p >= lower.length()) {
+            return Route.SKIP;
+        }
+        int end = wordEnd(lower, p);
+        String first = lower.substring(p, end);
+
+        // ALTER VIEW v AS SELECT 重新定义了视图的来源，照常解析
+        if ("alter".equals(first) && startsWithWord(lower, skipSpaces(lower, end), "view")
+                && indexOfWord(lower, "select", end) >= 0) {
+            return Route.PARSE;
+        }
+
+        for (String k : SKIP_LEADING) {
+            if (k.equals(first)) {
+                return Route.SKIP;
+            }
+        }
+
+        // Hive 多目标写法：FROM src INSERT ... INSERT ...
+        if ("from".equals(first)) {
+            return Route.FALLBACK;
+        }
+
+        if ("insert".equals(first)) {
+            int q = skipSpaces(lower, end);
+            if (startsWithWord(lower, q, "all") || startsWithWord(lower, q, "first")) {
+                return Route.FALLBACK;
+            }
+            if (startsWithWord(lower, q, "into")) {
+                q = skipSpaces(lower, q + 4);
+                if (startsWithWord(lower, q, "table")) {
+                    return Route.FALLBACK; // INSERT INTO TABLE t（Hive 写法）
+                }
+            }
+        }
+
+        if ("create".equals(first)) {
+            int q = skipSpaces(lower, end);
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                for (String m : CREATE_MODIFIERS) {
+                    if (startsWithWord(lower, q, m)) {
+                        q = skipSpaces(lower, q + m.length());
+                        moved = true;
+                    }
+                }
+            }
+            for (String obj : SKIP_CREATE_OBJECTS) {
+                if (startsWithWord(lower, q, obj)) {
+                    return Route.SKIP;
+                }
+            }
+            if (startsWithWord(lower, q, "table")) {
+                int select = indexOfWord(lower, "select", q);
+                if (select < 0) {
+                    return Route.SKIP; // 纯 DDL 建表，没有来源
+                }
+                // 只看 AS SELECT 之前的建表头部，SELECT 里叫 location/comment 的列不算存储子句
+                String header = lower.substring(0, select);
+                for (String c : HIVE_TABLE_CLAUSES) {
+                    if (indexOfWord(header, c, q) >= 0) {
+                        return Route.FALLBACK;
+                    }
+                }
+            }
+        }
+
+        if (indexOfWord(lower, "lateral view", 0) >= 0 || lower.contains("transform(")) {
+            return Route.FALLBACK;
+        }
+        return Route.PARSE;
+    }
+
+    /* -------------------- 词法工具（只看小写文本） -------------------- */
+
+    private static int skipSpaces(String lower, int i) {
+        while (i < lower.length() && Character.isWhitespace(lower.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSpacesAndParens(String lower, int i) {
+        while (i < lower.length() && (Character.isWhitespace(lower.charAt(i)) || lower.charAt(i) == '(')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int wordEnd(String lower, int i) {
+        while (i < lower.length() && isWordChar(lower.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int indexOfWord(String lower, String word, int fromIdx) {
+        int i = lower.indexOf(word, fromIdx);
+        while (i >= 0) {
+            if (startsWithWord(lower, i, word)) {
+                return i;
+            }
+            i = lower.indexOf(word, i + 1);
+        }
+        return -1;
+    }
+
+    private static boolean startsWithWord(String lower, int idx, String word) {
+        if (idx < 0 || !lower.startsWith(word, idx)) {
+            return false;
+        }
+        boolean leftOk = (idx == 0) || !isWordChar(lower.charAt(idx - 1));
+        int r = idx + word.length();
+        boolean rightOk = (r >= lower.length()) || !isWordChar(lower.charAt(r));
+        return leftOk && rightOk;
+    }
+
+    private static boolean isWordChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.parser;
 
+import com.example.model.TableNameDictionary;
+
 import java.util.*;
 
 public class TokenScannerFallback {
@@ -29,6 +31,24 @@ public class TokenScannerFallback {
                 if (view != null) {
                     targets.add(view);
                 }
+            } else {
+                // CREATE [TEMPORARY|EXTERNAL] TABLE [IF NOT EXISTS] <ident> ... AS SELECT（Hive 带存储子句的 CTAS）
+                int posTable = indexOfWord(lower, "table", posCreate + 6);
+                if (posTable >= 0 && posTable - posCreate < 30) {
+                    int p = posTable + 5;
+                    while (p < s.length() && Character.isWhitespace(s.charAt(p))) { p++; }
+                    if (startsWithWord(lower, p, "if")) {
+                        int posExists = indexOfWord(lower, "exists", p);
+                        if (posExists >= 0) {
+                            p = posExists + 6;
+                            while (p < s.length() && Character.isWhitespace(s.charAt(p))) { p++; }
+                        }
+                    }
+                    String table = readIdentifier(s, p);
+                    if (table != null && indexOfWord(lower, "select", p) >= 0) {
+                        targets.add(table);
+                    }
+                }
             }
         }
 
@@ -360,16 +380,11 @@ public class TokenScannerFallback {
         }
         endPos[0] = i;
         String ident = sb.toString().trim();
-        if (ident.isEmpty()) {
-            return null;
-        }
-        ident = ident.replace("`.", ".").replace(".`", ".")
-                .replace("\".", ".").replace(".\"", ".")
-                .replace("`", "").replace("\"", "");
         int sp = ident.indexOf(' ');
         if (sp > 0) {
             ident = ident.substring(0, sp);
         }
-        return ident.toLowerCase(Locale.ROOT);
+        // 去引号/小写统一交给表名字典（带缓存与驻留），空名返回 null
+        return TableNameDictionary.global().canonical(ident);
     }
 }
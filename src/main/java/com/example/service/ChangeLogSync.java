@@ -0,0 +1,168 @@
+package com.example.service;
+
+import com.example.dao.ChangeLogRepo;
+import com.example.dao.EdgeRepo;
+import com.example.graph.EdgeRecord;
+import com.example.model.ChangeLogEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 多实例之间的常驻图同步。入库事务里调用 {@link #record} 追加一行 ln_change_log，
+ * 提交后本实例经 {@link #applyCommitted} 直接更新索引；其他实例定时按 seq 追读，
+ * 只按 run 读取该次新增/关闭的边，不必重扫 ln_edge。
+ * <p>
+ * 自增 seq 的提交顺序可能与分配顺序不一致：追读时跳过的 seq 不论跨度多大都按区间记为缺口
+ * （长事务、组提交的大批次可能一次跳过很多），之后几轮里按区间补读，
+ * 超过 gap-timeout 仍不可见的视为回滚。边的写入与关闭都是幂等的，重复应用没有副作用。
+ */
+@Service
+public class ChangeLogSync {
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogSync.class);
+    private static final int PAGE = 500;
+
+    private final ChangeLogRepo changeLogRepo;
+    private final EdgeRepo edgeRepo;
+    private final GraphIndexService graphIndex;
+    private final GraphAnalyticsService analytics;
+    private final LineageEventBus events;
+    private final String instanceId;
+    private final boolean enabled;
+    private final long gapTimeoutMs;
+    private final long startupOverlapMs;
+
+    private long lastSeq;
+    /** 尚未可见的 seq 区间：起点 -> {终点（含）, 首次发现缺口的时间} */
+    private TreeMap<Long, long[]> gaps = new TreeMap<>();
+
+    public ChangeLogSync(ChangeLogRepo changeLogRepo, EdgeRepo edgeRepo, GraphIndexService graphIndex,
+                         GraphAnalyticsService analytics, LineageEventBus events,
+                         @Value("${lineage.sync.instance-id:}") String instanceId,
+                         @Value("${lineage.sync.enabled:false}") boolean enabled,
+                         @Value("${lineage.sync.gap-timeout-ms:60000}") long gapTimeoutMs,
+                         @Value("${lineage.sync.startup-overlap-ms:60000}") long startupOverlapMs) {
+        this.changeLogRepo = changeLogRepo;
+        this.edgeRepo = edgeRepo;
+        this.graphIndex = graphIndex;
+        this.analytics = analytics;
+        this.events = events;
+        this.instanceId = instanceId == null || instanceId.isEmpty() ? defaultInstanceId() : instanceId;
+        this.enabled = enabled;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.startupOverlapMs = startupOverlapMs;
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        String id = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+
+    /** 图索引启动时已从数据库加载；从稍早一点的位置开始追读，覆盖加载期间提交的 run */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Long seq = changeLogRepo.findMaxSeqCreatedBefore(Instant.now().minusMillis(startupOverlapMs));
+        lastSeq = seq == null ? 0 : seq;
+        log.info("lineage change-log sync enabled, instance {} tailing after seq {}", instanceId, lastSeq);
+    }
+
+    /** 在入库事务内调用，与边一起提交或回滚 */
+    public void record(long runId) {
+        ChangeLogEntity c = new ChangeLogEntity();
+        c.setRunId(runId);
+        c.setInstanceId(instanceId);
+        changeLogRepo.save(c);
+    }
+
+    /** 某次 run 已提交的变化应用到本实例：图索引、分析指标、变更推送 */
+    public void applyCommitted(long runId, List<EdgeRecord> added, long[] closed) {
+        graphIndex.apply(added);
+        if (closed.length > 0) {
+            graphIndex.close(closed, runId);
+        }
+        analytics.requestRecompute();
+        if (events.hasSubscribers()) {
+            events.publish(graphIndex.changeOf(runId, added, closed));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${lineage.sync.poll-ms:1000}", initialDelayString = "${lineage.sync.poll-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!gaps.isEmpty()) {
+                recheckGaps();
+            }
+            List<ChangeLogEntity> page;
+            do {
+                page = changeLogRepo.findAfter(lastSeq, PageRequest.of(0, PAGE));
+                for (ChangeLogEntity c : page) {
+                    if (c.getSeq() > lastSeq + 1) {
+                        gaps.put(lastSeq + 1, new long[]{c.getSeq() - 1, System.currentTimeMillis()});
+                    }
+                    apply(c);
+                    lastSeq = c.getSeq();
+                }
+            } while (page.size() == PAGE);
+        } catch (Exception e) {
+            log.warn("lineage change-log sync failed after seq {}: {}", lastSeq, e.toString());
+        }
+    }
+
+    /** 按区间补读缺口：读到的记录应用后把区间拆开，剩下的仍不可见；全部成功后才替换缺口表，失败时下轮重来 */
+    private void recheckGaps() {
+        long now = System.currentTimeMillis();
+        TreeMap<Long, long[]> remaining = new TreeMap<>();
+        for (Map.Entry<Long, long[]> g : gaps.entrySet()) {
+            long next = g.getKey(), to = g.getValue()[0], firstSeen = g.getValue()[1];
+            List<ChangeLogEntity> page;
+            do {
+                page = changeLogRepo.findInRange(next, to, PageRequest.of(0, PAGE));
+                for (ChangeLogEntity c : page) {
+                    if (c.getSeq() > next) {
+                        remaining.put(next, new long[]{c.getSeq() - 1, firstSeen});
+                    }
+                    apply(c);
+                    next = c.getSeq() + 1;
+                }
+            } while (page.size() == PAGE);
+            if (next <= to) {
+                remaining.put(next, new long[]{to, firstSeen});
+            }
+        }
+        remaining.values().removeIf(g -> now - g[1] > gapTimeoutMs);
+        gaps = remaining;
+    }
+
+    private void apply(ChangeLogEntity c) {
+        if (instanceId.equals(c.getInstanceId())) {
+            return;
+        }
+        long runId = c.getRunId();
+        List<EdgeRecord> added = edgeRepo.findIndexRowsOfRun(runId).stream()
+                .map(GraphIndexService::toRecord)
+                .collect(Collectors.toList());
+        long[] closed = edgeRepo.findIdsClosedByRun(runId).stream().mapToLong(Long::longValue).toArray();
+        applyCommitted(runId, added, closed);
+    }
+}
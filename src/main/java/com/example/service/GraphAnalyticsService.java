@@ -0,0 +1,140 @@
+package com.example.service;
+
+import com.example.graph.GraphAnalytics;
+import com.example.graph.LineageGraphIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 表级分析指标的后台计算与缓存。入库提交后调用 {@link #requestRecompute()}，
+ * 短时间内的多次入库合并成一次计算；计算在单独的线程上进行，逐表统计在 fork-join 池里并行，
+ * 结果整体替换，查询侧只读一个 volatile 引用，不会读到半成品。
+ */
+@Service
+public class GraphAnalyticsService {
+    private static final Logger log = LoggerFactory.getLogger(GraphAnalyticsService.class);
+
+    /** 单张表的分析指标 */
+    public static class TableStats {
+        public static final TableStats EMPTY = new TableStats(0, 0, 0, 0);
+
+        public final int upstream;
+        public final int downstream;
+        public final double pageRank;
+        public final int depth;
+
+        TableStats(int upstream, int downstream, double pageRank, int depth) {
+            this.upstream = upstream;
+            this.downstream = downstream;
+            this.pageRank = pageRank;
+            this.depth = depth;
+        }
+    }
+
+    /** 某一 epoch 的完整结果，按表名字典 id 下标 */
+    private static class Snapshot {
+        final long epoch;
+        final int[] denseOf;
+        final GraphAnalytics.Result result;
+
+        Snapshot(long epoch, int[] denseOf, GraphAnalytics.Result result) {
+            this.epoch = epoch;
+            this.denseOf = denseOf;
+            this.result = result;
+        }
+    }
+
+    private final GraphIndexService graphIndex;
+    private final boolean enabled;
+    private final long debounceMs;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lineage-analytics");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Snapshot current;
+
+    public GraphAnalyticsService(GraphIndexService graphIndex,
+                                 @Value("${lineage.analytics.enabled:true}") boolean enabled,
+                                 @Value("${lineage.analytics.debounce-ms:2000}") long debounceMs,
+                                 @Value("${lineage.analytics.parallelism:0}") int parallelism) {
+        this.graphIndex = graphIndex;
+        this.enabled = enabled;
+        this.debounceMs = debounceMs;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        requestRecompute();
+    }
+
+    /** 标记需要重算；已有待执行的计算时直接合并 */
+    public void requestRecompute() {
+        if (enabled && scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::recompute, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recompute() {
+        // 先清标记再取快照：计算期间到达的入库会重新排一次
+        scheduled.set(false);
+        try {
+            LineageGraphIndex index = graphIndex.index();
+            Snapshot prev = current;
+            if (prev != null && prev.epoch == index.epoch()) {
+                return;
+            }
+            long t0 = System.currentTimeMillis();
+            GraphAnalytics.Csr g = GraphAnalytics.snapshot(index);
+            GraphAnalytics.Result r = GraphAnalytics.compute(g, pool);
+            int bound = 0;
+            for (int id : g.nodeIds) {
+                bound = Math.max(bound, id + 1);
+            }
+            int[] denseOf = new int[bound];
+            Arrays.fill(denseOf, -1);
+            for (int i = 0; i < g.nodeIds.length; i++) {
+                denseOf[g.nodeIds[i]] = i;
+            }
+            current = new Snapshot(g.epoch, denseOf, r);
+            log.info("lineage analytics computed in {} ms: {} tables, {} components",
+                    System.currentTimeMillis() - t0, g.size(), r.componentCount);
+        } catch (Exception e) {
+            log.warn("lineage analytics failed: {}", e.toString());
+        }
+    }
+
+    /** 最近一次计算结果中该表的指标；尚未计算或表不在结果里时返回 {@link TableStats#EMPTY} */
+    public TableStats stats(String name) {
+        Snapshot s = current;
+        LineageGraphIndex index = graphIndex.index();
+        int id = name == null ? -1 : index.read(() -> index.nodeId(name));
+        if (s == null || id < 0 || id >= s.denseOf.length || s.denseOf[id] < 0) {
+            return TableStats.EMPTY;
+        }
+        int i = s.denseOf[id];
+        GraphAnalytics.Result r = s.result;
+        return new TableStats(r.upstream[i], r.downstream[i], r.pageRank[i], r.depth[i]);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,770 @@
+package com.example.service;
+
+import com.example.dao.EdgeRepo;
+import com.example.dao.LineageRunRepo;
+import com.example.dto.BatchGraphDTO;
+import com.example.dto.GraphDTO;
+import com.example.dto.LineageChangeDTO;
+import com.example.dto.LineageDiffDTO;
+import com.example.dto.LineagePathDTO;
+import com.example.dto.SchemaGraphDTO;
+import com.example.dto.TopoOrderDTO;
+import com.example.graph.EdgeRecord;
+import com.example.graph.GraphSnapshot;
+import com.example.graph.IntArrayList;
+import com.example.graph.LineageGraphIndex;
+import com.example.graph.SchemaAggregate;
+import com.example.model.TableNameDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * 常驻血缘图索引的生命周期：启动时从快照加载并只回放快照之后的 run，
+ * 入库提交后增量写入，定期/停机时落快照。查询类接口直接走内存索引。
+ */
+@Service
+public class GraphIndexService {
+    private static final Logger log = LoggerFactory.getLogger(GraphIndexService.class);
+    private static final int REPLAY_PAGE = 10_000;
+
+    private final LineageGraphIndex index = new LineageGraphIndex(TableNameDictionary.global());
+    private final EdgeRepo edgeRepo;
+    private final LineageRunRepo runRepo;
+    private final boolean snapshotEnabled;
+    private final Path snapshotPath;
+    private final long replayOverlapMs;
+    private volatile long snapshotEpoch = -1;
+
+    public GraphIndexService(EdgeRepo edgeRepo, LineageRunRepo runRepo,
+                             @Value("${lineage.snapshot.enabled:true}") boolean snapshotEnabled,
+                             @Value("${lineage.snapshot.path:./data/lineage-graph.snap}") String snapshotPath,
+                             @Value("${lineage.snapshot.replay-overlap-ms:600000}") long replayOverlapMs) {
+        this.edgeRepo = edgeRepo;
+        this.runRepo = runRepo;
+        this.snapshotEnabled = snapshotEnabled;
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.replayOverlapMs = replayOverlapMs;
+    }
+
+    public LineageGraphIndex index() {
+        return index;
+    }
+
+    /**
+     * 启动加载：先映射快照，再回放快照之后的 run。
+     * 并发入库时 run 的提交顺序可能与 id 顺序不一致，所以回放起点再往前覆盖一个时间窗口，
+     * 写入按边 id 幂等，重复回放不会重复计数。
+     */
+    @PostConstruct
+    public void load() {
+        long t0 = System.currentTimeMillis();
+        long fromRunId = 0;
+        if (snapshotEnabled) {
+            try {
+                GraphSnapshot.Header h = GraphSnapshot.load(snapshotPath, index);
+                if (h != null) {
+                    fromRunId = h.lastRunId + 1;
+                    Long recent = runRepo.findMinIdCreatedSince(Instant.ofEpochMilli(h.writtenAt - replayOverlapMs));
+                    if (recent != null && recent < fromRunId) {
+                        fromRunId = recent;
+                    }
+                    snapshotEpoch = index.epoch();
+                    log.info("lineage snapshot loaded: {} edges, lastRunId={}", h.edgeCount, h.lastRunId);
+                }
+            } catch (Exception e) {
+                log.warn("lineage snapshot unusable, rebuilding from database: {}", e.toString());
+                fromRunId = 0;
+            }
+        }
+        int replayed = replayFrom(fromRunId);
+        int dropped = index.clearPendingCloses();
+        if (dropped > 0) {
+            log.debug("dropped {} closes for edges outside the replayed range", dropped);
+        }
+        log.info("lineage graph index ready in {} ms ({} edges replayed from run {})",
+                System.currentTimeMillis() - t0, replayed, fromRunId);
+    }
+
+    private int replayFrom(long fromRunId) {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = edgeRepo.findIndexRowsFromRun(fromRunId, afterId, PageRequest.of(0, REPLAY_PAGE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<EdgeRecord> batch = new ArrayList<>(rows.size());
+            for (Object[] r : rows) {
+                batch.add(toRecord(r));
+            }
+            total += index.addEdges(batch);
+            afterId = batch.get(batch.size() - 1).edgeId;
+            if (rows.size() < REPLAY_PAGE) {
+                break;
+            }
+        }
+        // 快照里仍有效、但之后被新 run 关闭的边
+        for (Object[] r : edgeRepo.findClosedFromRun(fromRunId)) {
+            index.closeEdges(new long[]{((Number) r[0]).longValue()}, ((Number) r[1]).longValue());
+        }
+        return total;
+    }
+
+    /** (id, 来源名, 来源类型, 目标名, 目标类型, runId, validToRun) 查询行 -> 索引记录 */
+    static EdgeRecord toRecord(Object[] r) {
+        return new EdgeRecord(((Number) r[0]).longValue(), (String) r[1], (String) r[2],
+                (String) r[3], (String) r[4], ((Number) r[5]).longValue(),
+                r[6] == null ? LineageGraphIndex.OPEN : ((Number) r[6]).longValue());
+    }
+
+    /** 入库事务提交后调用 */
+    public void apply(List<EdgeRecord> edges) {
+        index.addEdges(edges);
+    }
+
+    /** 入库事务提交后调用：这些边自 retiredRunId 起失效 */
+    public void close(long[] edgeIds, long retiredRunId) {
+        index.closeEdges(edgeIds, retiredRunId);
+    }
+
+    /**
+     * 一次提交对当前图的变化（写入索引之后调用）：新增边及其两端节点；
+     * 被关闭的边只有在同一 (来源, 目标) 不再有其他有效边时才算移除。
+     */
+    public LineageChangeDTO changeOf(long runId, List<EdgeRecord> added, long[] closedIds) {
+        return index.read(() -> {
+            LineageChangeDTO c = new LineageChangeDTO();
+            c.runId = runId;
+            c.epoch = index.epoch();
+            Set<Integer> nodes = new HashSet<>();
+            Set<Long> pairs = new HashSet<>();
+            for (EdgeRecord e : added) {
+                int s = index.nodeId(e.source), t = index.nodeId(e.target);
+                if (s < 0 || t < 0 || !pairs.add(((long) s << 32) | t) || !livePair(s, t)) {
+                    continue;
+                }
+                for (int u : new int[]{s, t}) {
+                    if (nodes.add(u)) {
+                        c.nodes.add(new GraphDTO.Node(index.name(u), index.name(u), index.type(u)));
+                    }
+                }
+                c.addedEdges.add(new GraphDTO.Edge(index.name(s), index.name(t)));
+            }
+            pairs.clear();
+            for (long id : closedIds) {
+                int row = index.rowOf(id);
+                if (row < 0) {
+                    continue;
+                }
+                int s = index.source(row), t = index.target(row);
+                if (pairs.add(((long) s << 32) | t) && !livePair(s, t)) {
+                    c.removedEdges.add(new GraphDTO.Edge(index.name(s), index.name(t)));
+                }
+            }
+            return c;
+        });
+    }
+
+    private boolean livePair(int s, int t) {
+        return livePair(s, t, LineageGraphIndex.CURRENT);
+    }
+
+    private boolean livePair(int s, int t, long asOfRun) {
+        IntArrayList outs = index.outRows(s);
+        for (int i = 0; i < outs.size(); i++) {
+            int row = outs.get(i);
+            if (index.target(row) == t && index.isLive(row, asOfRun)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${lineage.snapshot.interval-ms:300000}",
+            initialDelayString = "${lineage.snapshot.interval-ms:300000}")
+    public void scheduledSnapshot() {
+        writeSnapshot();
+    }
+
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        long epoch = index.epoch();
+        if (epoch == snapshotEpoch) {
+            return; // 自上次快照以来没有变化
+        }
+        try {
+            GraphSnapshot.Header h = GraphSnapshot.write(index, snapshotPath);
+            snapshotEpoch = epoch;
+            log.info("lineage snapshot written: {} edges, lastRunId={}", h.edgeCount, h.lastRunId);
+        } catch (Exception e) {
+            log.warn("lineage snapshot write failed: {}", e.toString());
+        }
+    }
+
+    /* -------------------- 查询 -------------------- */
+
+    /** 入度；经过过程节点的边按展开后的直连边计（过程节点的每个来源算一条） */
+    public long inDegree(String name) {
+        return index.read(() -> expandedDegree(index.nodeId(name), false));
+    }
+
+    /** 出度；经过过程节点的边按展开后的直连边计 */
+    public long outDegree(String name) {
+        return index.read(() -> expandedDegree(index.nodeId(name), true));
+    }
+
+    private long expandedDegree(int node, boolean out) {
+        if (node < 0) {
+            return 0L;
+        }
+        long n = 0;
+        IntArrayList rows = out ? index.outRows(node) : index.inRows(node);
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            if (!index.isLive(row, LineageGraphIndex.CURRENT)) {
+                continue;
+            }
+            int v = out ? index.target(row) : index.source(row);
+            if (!index.isProcess(v)) {
+                n++;
+                continue;
+            }
+            IntArrayList via = out ? index.outRows(v) : index.inRows(v);
+            for (int j = 0; j < via.size(); j++) {
+                if (index.isLive(via.get(j), LineageGraphIndex.CURRENT)) {
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /** 以 center 为中心的当前连通子图 */
+    public GraphDTO component(String center) {
+        return component(center, LineageGraphIndex.CURRENT);
+    }
+
+    /**
+     * 以 center 为中心、在 asOfRun 时刻有效的连通子图（正向+逆向 BFS，直到没有新节点）。
+     * 历史边与当前边在同一组行列表里，回看只多一次区间判断，不扫描历史。
+     */
+    public GraphDTO component(String center, long asOfRun) {
+        return index.read(() -> {
+            GraphDTO dto = new GraphDTO();
+            int c = index.nodeId(center);
+            if (c < 0) {
+                return dto;
+            }
+            BitSet keep = new BitSet();
+            IntArrayList order = new IntArrayList();
+            keep.set(c);
+            order.add(c);
+            for (int head = 0; head < order.size(); head++) {
+                int u = order.get(head);
+                IntArrayList outs = index.outRows(u);
+                for (int i = 0; i < outs.size(); i++) {
+                    if (!index.isLive(outs.get(i), asOfRun)) {
+                        continue;
+                    }
+                    int v = index.target(outs.get(i));
+                    if (!keep.get(v)) {
+                        keep.set(v);
+                        order.add(v);
+                    }
+                }
+                IntArrayList ins = index.inRows(u);
+                for (int i = 0; i < ins.size(); i++) {
+                    if (!index.isLive(ins.get(i), asOfRun)) {
+                        continue;
+                    }
+                    int v = index.source(ins.get(i));
+                    if (!keep.get(v)) {
+                        keep.set(v);
+                        order.add(v);
+                    }
+                }
+            }
+
+            // 连通分量内所有边都挂在某个节点的出边上，只需遍历出边；同一对表只输出一条
+            Set<Long> pairs = new HashSet<>();
+            for (int k = 0; k < order.size(); k++) {
+                int u = order.get(k);
+                dto.getNodes().add(new GraphDTO.Node(index.name(u), index.name(u), index.type(u)));
+                IntArrayList outs = index.outRows(u);
+                for (int i = 0; i < outs.size(); i++) {
+                    if (!index.isLive(outs.get(i), asOfRun)) {
+                        continue;
+                    }
+                    int v = index.target(outs.get(i));
+                    if (pairs.add(((long) u << 32) | v)) {
+                        dto.getEdges().add(new GraphDTO.Edge(index.name(u), index.name(v)));
+                    }
+                }
+            }
+            return dto;
+        });
+    }
+
+    /**
+     * fromRun 与 toRun 两个时刻之间新增/消失的表级边。
+     * 只看两个时刻之间写入或关闭的行（按 run 索引取出），对这些行涉及的 (来源, 目标) 分别判断两端是否有效，
+     * 排序去重后归并比较；代价与区间内的变化量成正比，与历史总边数无关。
+     * jobRunIds（升序）非空时只看这些 run 写入的边。
+     */
+    public LineageDiffDTO diff(long fromRun, long toRun, long[] jobRunIds) {
+        return index.read(() -> {
+            long[] before, after;
+            if (jobRunIds != null) {
+                IntArrayList rows = index.rowsWrittenBy(jobRunIds);
+                before = liveRowPairs(rows, fromRun);
+                after = liveRowPairs(rows, toRun);
+            } else {
+                long[] touched = pairKeys(index.rowsChangedBetween(Math.min(fromRun, toRun), Math.max(fromRun, toRun)));
+                before = livePairsOf(touched, fromRun);
+                after = livePairsOf(touched, toRun);
+            }
+            LineageDiffDTO dto = new LineageDiffDTO();
+            dto.fromRunId = fromRun;
+            dto.toRunId = toRun;
+            int i = 0, j = 0;
+            while (i < before.length || j < after.length) {
+                if (j == after.length || (i < before.length && before[i] < after[j])) {
+                    dto.removed.add(pairEdge(before[i++]));
+                } else if (i == before.length || after[j] < before[i]) {
+                    dto.added.add(pairEdge(after[j++]));
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            return dto;
+        });
+    }
+
+    /** 这些行中在 asOfRun 时有效的 (来源 id, 目标 id) 键，升序去重 */
+    private long[] liveRowPairs(IntArrayList rows, long asOfRun) {
+        IntArrayList live = new IntArrayList();
+        for (int i = 0; i < rows.size(); i++) {
+            if (index.isLive(rows.get(i), asOfRun)) {
+                live.add(rows.get(i));
+            }
+        }
+        return pairKeys(live);
+    }
+
+    /** 这些 (来源, 目标) 键中在 asOfRun 时仍有任意一条有效边的 */
+    private long[] livePairsOf(long[] keys, long asOfRun) {
+        long[] out = new long[keys.length];
+        int m = 0;
+        for (long key : keys) {
+            if (livePair((int) (key >>> 32), (int) key, asOfRun)) {
+                out[m++] = key;
+            }
+        }
+        return Arrays.copyOf(out, m);
+    }
+
+    /** 行 -> (来源 id, 目标 id) 键，升序去重 */
+    private long[] pairKeys(IntArrayList rows) {
+        long[] keys = new long[rows.size()];
+        for (int r = 0; r < keys.length; r++) {
+            keys[r] = ((long) index.source(rows.get(r)) << 32) | index.target(rows.get(r));
+        }
+        Arrays.sort(keys);
+        int m = 0;
+        for (int r = 0; r < keys.length; r++) {
+            if (m == 0 || keys[m - 1] != keys[r]) {
+                keys[m++] = keys[r];
+            }
+        }
+        return Arrays.copyOf(keys, m);
+    }
+
+    private GraphDTO.Edge pairEdge(long key) {
+        return new GraphDTO.Edge(index.name((int) (key >>> 32)), index.name((int) key));
+    }
+
+    /**
+     * from 沿血缘方向（来源 -> 目标）到达 to 的路径，最多 k 条、每条不超过 maxHops 跳。
+     * k = 1 时用双向 BFS 只求一条最短路径；k > 1 时先从 to 反向 BFS 求出 maxHops 以内的距离，
+     * 再按长度由短到长做剪枝 DFS，只展开还来得及到达 to 的节点。都不会展开整个连通分量。
+     * 与 batch 一样，过程节点不占跳数、也不出现在路径里：经过程节点与直连的同一串表只算一条路径。
+     */
+    public LineagePathDTO paths(String from, String to, int k, int maxHops) {
+        return index.read(() -> {
+            LineagePathDTO dto = new LineagePathDTO();
+            dto.from = from;
+            dto.to = to;
+            int s = index.nodeId(from), t = index.nodeId(to);
+            if (s < 0 || t < 0 || k <= 0 || maxHops < 0) {
+                return dto;
+            }
+            if (s == t) {
+                dto.paths.add(Collections.singletonList(index.name(s)));
+                return dto;
+            }
+            if (k == 1) {
+                IntArrayList p = shortestPath(s, t, maxHops);
+                if (p != null) {
+                    dto.paths.add(names(p));
+                }
+                return dto;
+            }
+            Map<Integer, Integer> distToT = reverseDistances(t, maxHops);
+            Integer d0 = distToT.get(s);
+            if (d0 == null) {
+                return dto;
+            }
+            IntArrayList path = new IntArrayList();
+            path.add(s);
+            BitSet onPath = new BitSet();
+            onPath.set(s);
+            for (int len = d0; len <= maxHops && dto.paths.size() < k; len++) {
+                pathsOfLength(s, t, len, distToT, path, onPath, k, dto.paths);
+            }
+            return dto;
+        });
+    }
+
+    /** 双向 BFS：每轮扩展较小的一侧，两侧相遇即得最短路径；超过 maxHops 返回 null */
+    private IntArrayList shortestPath(int s, int t, int maxHops) {
+        Map<Integer, Integer> fwdParent = new HashMap<>();
+        Map<Integer, Integer> bwdParent = new HashMap<>();
+        fwdParent.put(s, -1);
+        bwdParent.put(t, -1);
+        IntArrayList fwd = new IntArrayList();
+        IntArrayList bwd = new IntArrayList();
+        fwd.add(s);
+        bwd.add(t);
+        int hops = 0;
+        while (!fwd.isEmpty() && !bwd.isEmpty() && hops < maxHops) {
+            boolean forward = fwd.size() <= bwd.size();
+            IntArrayList frontier = forward ? fwd : bwd;
+            Map<Integer, Integer> mine = forward ? fwdParent : bwdParent;
+            Map<Integer, Integer> other = forward ? bwdParent : fwdParent;
+            IntArrayList next = new IntArrayList();
+            hops++;
+            for (int i = 0; i < frontier.size(); i++) {
+                int u = frontier.get(i);
+                for (int v : distinctLiveNeighbors(u, forward)) {
+                    if (mine.containsKey(v)) {
+                        continue;
+                    }
+                    mine.put(v, u);
+                    if (other.containsKey(v)) {
+                        return joinPath(v, fwdParent, bwdParent);
+                    }
+                    next.add(v);
+                }
+            }
+            if (forward) {
+                fwd = next;
+            } else {
+                bwd = next;
+            }
+        }
+        return null;
+    }
+
+    private static IntArrayList joinPath(int meet, Map<Integer, Integer> fwdParent, Map<Integer, Integer> bwdParent) {
+        IntArrayList head = new IntArrayList();
+        for (int v = meet; v >= 0; v = fwdParent.get(v)) {
+            head.add(v);
+        }
+        IntArrayList path = new IntArrayList();
+        for (int i = head.size() - 1; i >= 0; i--) {
+            path.add(head.get(i));
+        }
+        for (int v = bwdParent.get(meet); v >= 0; v = bwdParent.get(v)) {
+            path.add(v);
+        }
+        return path;
+    }
+
+    /** 从 t 沿入边反向 BFS，得到 maxHops 以内各节点到 t 的跳数 */
+    private Map<Integer, Integer> reverseDistances(int t, int maxHops) {
+        Map<Integer, Integer> dist = new HashMap<>();
+        dist.put(t, 0);
+        IntArrayList queue = new IntArrayList();
+        queue.add(t);
+        for (int head = 0; head < queue.size(); head++) {
+            int u = queue.get(head);
+            int d = dist.get(u);
+            if (d == maxHops) {
+                continue;
+            }
+            for (int v : distinctLiveNeighbors(u, false)) {
+                if (!dist.containsKey(v)) {
+                    dist.put(v, d + 1);
+                    queue.add(v);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** 枚举恰好 len 跳的简单路径；剩余步数不够到达 t 的分支直接剪掉 */
+    private void pathsOfLength(int u, int t, int len, Map<Integer, Integer> distToT,
+                               IntArrayList path, BitSet onPath, int k, List<List<String>> out) {
+        int depth = path.size() - 1;
+        if (u == t) {
+            if (depth == len) {
+                out.add(names(path));
+            }
+            return;
+        }
+        for (int v : distinctLiveNeighbors(u, true)) {
+            if (out.size() >= k) {
+                return;
+            }
+            Integer d = distToT.get(v);
+            if (d == null || onPath.get(v) || depth + 1 + d > len) {
+                continue;
+            }
+            path.add(v);
+            onPath.set(v);
+            pathsOfLength(v, t, len, distToT, path, onPath, k, out);
+            onPath.clear(v);
+            path.removeLast();
+        }
+    }
+
+    /**
+     * u 当前有效的下游（forward）或上游表：经过程节点的按展开后的直连关系，
+     * 同一对表的多条边、直连与经过程节点的只算一次
+     */
+    private int[] distinctLiveNeighbors(int u, boolean forward) {
+        IntArrayList rows = forward ? index.outRows(u) : index.inRows(u);
+        IntArrayList found = new IntArrayList();
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            if (!index.isLive(row, LineageGraphIndex.CURRENT)) {
+                continue;
+            }
+            int v = forward ? index.target(row) : index.source(row);
+            if (!index.isProcess(v)) {
+                found.add(v);
+                continue;
+            }
+            IntArrayList via = forward ? index.outRows(v) : index.inRows(v);
+            for (int j = 0; j < via.size(); j++) {
+                if (index.isLive(via.get(j), LineageGraphIndex.CURRENT)) {
+                    found.add(forward ? index.target(via.get(j)) : index.source(via.get(j)));
+                }
+            }
+        }
+        int n = found.size();
+        int[] vs = new int[n];
+        for (int i = 0; i < n; i++) {
+            vs[i] = found.get(i);
+        }
+        Arrays.sort(vs, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || vs[m - 1] != vs[i]) {
+                vs[m++] = vs[i];
+            }
+        }
+        return Arrays.copyOf(vs, m);
+    }
+
+    private List<String> names(IntArrayList path) {
+        List<String> out = new ArrayList<>(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            out.add(index.name(path.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * 多中心子图，一次遍历完成：所有中心作为第 0 层同时出发，按层推进，depth 层后停止。
+     * union 模式共用一个 visited；per-center 模式每个节点记一个“哪些中心已到达”的位集，
+     * 每层只沿新增的位继续传播，节点第一次被某中心到达的层数就是它到该中心的距离。
+     * 结果边为各节点集合上的诱导子图（同一对表只输出一条）。
+     *
+     * @param upstream   是否沿入边（向来源）扩展
+     * @param downstream 是否沿出边（向目标）扩展
+     */
+    public BatchGraphDTO batch(List<String> centers, int depth, boolean upstream, boolean downstream, boolean perCenter) {
+        return index.read(() -> {
+            BatchGraphDTO dto = new BatchGraphDTO();
+            dto.missing = new ArrayList<>();
+            List<String> found = new ArrayList<>();
+            IntArrayList seeds = new IntArrayList();
+            for (String c : centers) {
+                int id = index.nodeId(c);
+                if (id < 0) {
+                    dto.missing.add(c);
+                } else if (!found.contains(index.name(id))) {
+                    found.add(index.name(id));
+                    seeds.add(id);
+                }
+            }
+
+            // node -> 已到达的中心位集（union 模式只用第 0 位）
+            Map<Integer, BitSet> reached = new LinkedHashMap<>();
+            Map<Integer, BitSet> delta = new LinkedHashMap<>();
+            for (int i = 0; i < seeds.size(); i++) {
+                int bit = perCenter ? i : 0;
+                reached.computeIfAbsent(seeds.get(i), x -> new BitSet()).set(bit);
+                delta.computeIfAbsent(seeds.get(i), x -> new BitSet()).set(bit);
+            }
+            for (int layer = 0; layer < depth && !delta.isEmpty(); layer++) {
+                Map<Integer, BitSet> next = new LinkedHashMap<>();
+                for (Map.Entry<Integer, BitSet> en : delta.entrySet()) {
+                    int u = en.getKey();
+                    if (downstream) {
+                        spread(index.outRows(u), true, en.getValue(), reached, next);
+                    }
+                    if (upstream) {
+                        spread(index.inRows(u), false, en.getValue(), reached, next);
+                    }
+                }
+                delta = next;
+            }
+
+            if (!perCenter) {
+                dto.union = induced(reached, 0);
+                return dto;
+            }
+            dto.perCenter = new LinkedHashMap<>();
+            for (int i = 0; i < found.size(); i++) {
+                dto.perCenter.put(found.get(i), induced(reached, i));
+            }
+            return dto;
+        });
+    }
+
+    /** 把 bits 沿 rows 传播一层；目标节点只接收还没有的位，新增的位进入下一层 */
+    private void spread(IntArrayList rows, boolean forward, BitSet bits,
+                        Map<Integer, BitSet> reached, Map<Integer, BitSet> next) {
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            if (!index.isLive(row, LineageGraphIndex.CURRENT)) {
+                continue;
+            }
+            int v = forward ? index.target(row) : index.source(row);
+            BitSet have = reached.computeIfAbsent(v, x -> new BitSet());
+            BitSet fresh = (BitSet) bits.clone();
+            fresh.andNot(have);
+            if (!fresh.isEmpty()) {
+                have.or(fresh);
+                next.computeIfAbsent(v, x -> new BitSet()).or(fresh);
+                if (index.isProcess(v)) {
+                    // 过程节点不占层数：同一层内沿原方向穿过它
+                    spread(forward ? index.outRows(v) : index.inRows(v), forward, fresh, reached, next);
+                }
+            }
+        }
+    }
+
+    /** 位 bit 所在节点集合上的诱导子图 */
+    private GraphDTO induced(Map<Integer, BitSet> reached, int bit) {
+        GraphDTO g = new GraphDTO();
+        Set<Long> pairs = new HashSet<>();
+        for (Map.Entry<Integer, BitSet> en : reached.entrySet()) {
+            if (!en.getValue().get(bit)) {
+                continue;
+            }
+            int u = en.getKey();
+            g.getNodes().add(new GraphDTO.Node(index.name(u), index.name(u), index.type(u)));
+            IntArrayList outs = index.outRows(u);
+            for (int i = 0; i < outs.size(); i++) {
+                int row = outs.get(i);
+                if (!index.isLive(row, LineageGraphIndex.CURRENT)) {
+                    continue;
+                }
+                int v = index.target(row);
+                BitSet vb = reached.get(v);
+                if (vb != null && vb.get(bit) && pairs.add(((long) u << 32) | v)) {
+                    g.getEdges().add(new GraphDTO.Edge(index.name(u), index.name(v)));
+                }
+            }
+        }
+        return g;
+    }
+
+    /** 增量维护的拓扑序；runId 非空时成环边只列该 run 写入的 */
+    public TopoOrderDTO topoOrder(Long runId, boolean withOrder) {
+        return index.read(() -> {
+            TopoOrderDTO dto = new TopoOrderDTO();
+            if (withOrder) {
+                for (int v : index.topoOrder()) {
+                    if (!index.isProcess(v)) {
+                        dto.order.add(index.name(v));
+                    }
+                }
+            }
+            for (int r = index.nextCyclicRow(0); r >= 0; r = index.nextCyclicRow(r + 1)) {
+                if (!index.isLive(r, LineageGraphIndex.CURRENT) || (runId != null && index.runId(r) != runId)) {
+                    continue;
+                }
+                dto.cycleEdges.add(new TopoOrderDTO.CycleEdge(index.edgeId(r), index.runId(r),
+                        index.name(index.source(r)), index.name(index.target(r))));
+            }
+            return dto;
+        });
+    }
+
+    /** 库级概览（增量维护的汇总，直接读取） */
+    public SchemaGraphDTO schemaGraph() {
+        return index.read(() -> {
+            SchemaAggregate agg = index.schemas();
+            SchemaGraphDTO dto = new SchemaGraphDTO();
+            for (int i = 0; i < agg.schemaCount(); i++) {
+                if (agg.memberCount(i) > 0) {
+                    dto.schemas.add(new SchemaGraphDTO.Schema(agg.schema(i), agg.memberCount(i)));
+                }
+            }
+            for (int[] e : agg.edges()) {
+                dto.edges.add(new SchemaGraphDTO.Edge(agg.schema(e[0]), agg.schema(e[1]), e[2]));
+            }
+            dto.schemas.sort(Comparator.comparing(x -> x.name));
+            dto.edges.sort(Comparator.comparingInt((SchemaGraphDTO.Edge x) -> -x.weight));
+            return dto;
+        });
+    }
+
+    /**
+     * 下钻：source 库中的表到 target 库中的表的当前有效依赖（经过程节点的按展开后的直连关系），
+     * 直接读取库级汇总里该库对的表对，最多 limit 条
+     */
+    public GraphDTO schemaEdges(String source, String target, int limit) {
+        return index.read(() -> {
+            GraphDTO dto = new GraphDTO();
+            SchemaAggregate agg = index.schemas();
+            int from = agg.schemaId(source), to = agg.schemaId(target);
+            if (from < 0 || to < 0) {
+                return dto;
+            }
+            Set<Integer> nodes = new LinkedHashSet<>();
+            for (long pair : agg.tablePairs(from, to)) {
+                if (dto.getEdges().size() >= limit) {
+                    break;
+                }
+                int u = (int) (pair >>> 32), v = (int) pair;
+                nodes.add(u);
+                nodes.add(v);
+                dto.getEdges().add(new GraphDTO.Edge(index.name(u), index.name(v)));
+            }
+            for (int n : nodes) {
+                dto.getNodes().add(new GraphDTO.Node(index.name(n), index.name(n), index.type(n)));
+            }
+            return dto;
+        });
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.service;
+
+import com.example.model.LineageGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 入库的组提交：开启后，并发请求的 saveRun 先进入队列，由单独的线程每 maxDelayMs 毫秒
+ * 或攒够 maxEdges 条边时在一个事务里一起写入，多个请求分摊一次提交（一次 fsync）。
+ * 调用方阻塞到自己所在的批次提交后才返回自己的 runId，语义与直接调用 saveRun 相同。
+ * 整批失败时逐条单独重试，一条坏数据不会连累同批的其他请求。未开启时直接调用 saveRun。
+ * 停机后或写入线程意外退出后不再接收新请求，队列里剩下的请求以异常结束。
+ * 调用方等待 wait-timeout-ms 后若请求仍在队列里，就把它撤出并报失败（确定没有写入）；
+ * 已被写入线程取走的则继续等到所在批次结束，结果只取决于该批次，不会出现报失败却已写入的情况。
+ */
+@Service
+public class GroupCommitWriter {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    /** 排队中的一次入库 */
+    private static class Pending {
+        final String sql;
+        final LineageGraph graph;
+        final Map<Integer, String> stmtLabels;
+        final Map<Integer, int[]> stmtSpans;
+        final Long replacesRunId;
+        final String jobKey;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        Pending(String sql, LineageGraph graph, Map<Integer, String> stmtLabels, Map<Integer, int[]> stmtSpans,
+                Long replacesRunId, String jobKey) {
+            this.sql = sql;
+            this.graph = graph;
+            this.stmtLabels = stmtLabels;
+            this.stmtSpans = stmtSpans;
+            this.replacesRunId = replacesRunId;
+            this.jobKey = jobKey;
+        }
+    }
+
+    private final PersistenceService persistence;
+    private final TransactionTemplate tx;
+    private final LineageMetrics metrics;
+    private final boolean enabled;
+    private final long maxDelayNanos;
+    private final int maxEdges;
+    private final long waitTimeoutMs;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public GroupCommitWriter(PersistenceService persistence, PlatformTransactionManager txManager, LineageMetrics metrics,
+                             @Value("${lineage.group-commit.enabled:false}") boolean enabled,
+                             @Value("${lineage.group-commit.max-delay-ms:20}") long maxDelayMs,
+                             @Value("${lineage.group-commit.max-edges:2000}") int maxEdges,
+                             @Value("${lineage.group-commit.wait-timeout-ms:60000}") long waitTimeoutMs) {
+        this.persistence = persistence;
+        this.tx = new TransactionTemplate(txManager);
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.maxEdges = maxEdges;
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::loop, "lineage-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** 停机时把队列里剩下的写完 */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    /** 与 {@link PersistenceService#saveRun} 参数相同；返回时数据已提交 */
+    public Long save(String sql, LineageGraph graph, Map<Integer, String> stmtLabels, Map<Integer, int[]> stmtSpans,
+                     Long replacesRunId, String jobKey) throws Exception {
+        if (!enabled) {
+            return persistence.saveRun(sql, graph, stmtLabels, stmtSpans, replacesRunId, jobKey);
+        }
+        if (!running || !flusher.isAlive()) {
+            throw new IllegalStateException("group commit writer is not running");
+        }
+        Pending p = new Pending(sql, graph, stmtLabels, stmtSpans, replacesRunId, jobKey);
+        queue.add(p);
+        if (!flusher.isAlive()) {
+            // 入队时写入线程恰好退出：没有线程会再处理它
+            failLeftovers();
+        }
+        try {
+            return await(p, waitTimeoutMs);
+        } catch (TimeoutException e) {
+            if (queue.remove(p)) {
+                throw new IllegalStateException("group commit did not start within " + waitTimeoutMs
+                        + " ms, the run was not saved", e);
+            }
+            // 已在写入中的批次里：批次提交或失败（失败时逐条重试）后一定会给出结果
+            log.warn("group commit batch still running after {} ms, waiting for it to finish", waitTimeoutMs);
+            return await(p, 0);
+        }
+    }
+
+    /** timeoutMs <= 0 表示一直等到有结果 */
+    private static Long await(Pending p, long timeoutMs) throws Exception {
+        try {
+            return timeoutMs > 0 ? p.result.get(timeoutMs, TimeUnit.MILLISECONDS) : p.result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause);
+        }
+    }
+
+    private void loop() {
+        try {
+            drainLoop();
+        } catch (Throwable t) {
+            log.error("group commit writer stopped unexpectedly", t);
+        } finally {
+            running = false;
+            failLeftovers();
+        }
+    }
+
+    /** 队列里已没有线程处理的请求以异常结束 */
+    private void failLeftovers() {
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.result.completeExceptionally(new IllegalStateException("group commit writer is not running"));
+        }
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending> batch = new ArrayList<>();
+                batch.add(first);
+                int edges = first.graph.getEdges().size();
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (edges < maxEdges) {
+                    long wait = deadline - System.nanoTime();
+                    Pending p = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (p == null) {
+                        break;
+                    }
+                    batch.add(p);
+                    edges += p.graph.getEdges().size();
+                }
+                try {
+                    flush(batch);
+                } catch (Throwable t) {
+                    for (Pending p : batch) {
+                        p.result.completeExceptionally(t);
+                    }
+                    throw t;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        metrics.recordGroupCommitBatch(batch.size());
+        List<Long> ids;
+        try {
+            ids = tx.execute(status -> {
+                // 批内涉及的作业先一次性按序加锁，再逐条写入
+                Set<String> jobKeys = new HashSet<>();
+                for (Pending p : batch) {
+                    if (p.jobKey != null) {
+                        jobKeys.add(p.jobKey);
+                    }
+                }
+                persistence.lockJobs(jobKeys);
+                List<Long> out = new ArrayList<>(batch.size());
+                for (Pending p : batch) {
+                    out.add(saveOne(p));
+                }
+                return out;
+            });
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("group commit of {} runs failed, retrying individually: {}", batch.size(), e.toString());
+            }
+            for (Pending p : batch) {
+                try {
+                    p.result.complete(persistence.saveRun(p.sql, p.graph, p.stmtLabels, p.stmtSpans,
+                            p.replacesRunId, p.jobKey));
+                } catch (Exception ex) {
+                    p.result.completeExceptionally(ex);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(ids.get(i));
+        }
+    }
+
+    /** 在外层批次事务里执行（saveRun 加入该事务，不单独提交） */
+    private Long saveOne(Pending p) {
+        try {
+            return persistence.saveRun(p.sql, p.graph, p.stmtLabels, p.stmtSpans, p.replacesRunId, p.jobKey);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.service;
+
+import com.example.graph.LineageGraphIndex;
+import com.example.model.LineageGraph;
+import com.example.parser.JSqlParserEngine;
+import com.example.parser.SqlPreprocessor;
+import com.example.parser.SqlScriptSplitter;
+import com.example.parser.StatementClassifier;
+import io.micrometer.core.instrument.Timer;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.create.table.CreateTable;
+import net.sf.jsqlparser.statement.insert.Insert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 脚本 -> 血缘图：切分、逐条预处理/解析/兜底扫描，并按语句指纹缓存结果。
+ * 不依赖 Spring 容器与数据库，Web 入库与离线批处理共用；线程安全，可被多个线程同时调用。
+ */
+public class LineageBuilder {
+
+    static final String PROCESS_PREFIX = "process:";
+    static final String PROCESS_TYPE = LineageGraphIndex.PROCESS;
+
+    /** 一份脚本的解析结果 */
+    public static class Script {
+        public final LineageGraph graph = new LineageGraph();
+        /** 每个SQL语句的标签（用于标识语句类型和顺序） */
+        public final Map<Integer, String> stmtLabels = new LinkedHashMap<>();
+        /** 每个带目标的语句在原文中的字符区间，供按边回看源语句 */
+        public final Map<Integer, int[]> stmtSpans = new HashMap<>();
+    }
+
+    private final JSqlParserEngine engine;
+    private final SqlScriptSplitter splitter = new SqlScriptSplitter();
+    private final StatementClassifier classifier = new StatementClassifier();
+    private final LineageMetrics metrics;
+    private final SlowStatementLog slowLog;
+    private final boolean processNodes;
+    private final int cacheSize;
+    /** 语句指纹 -> (校验值, 解析结果)；超过上限时整体清空（与表名字典的做法一致，不做 LRU 记账） */
+    private final Map<Long, CachedLineage> parseCache = new ConcurrentHashMap<>();
+
+    /** slowLog 可为 null（不记录慢语句） */
+    public LineageBuilder(LineageMetrics metrics, SlowStatementLog slowLog, long simpleBudgetMs, long complexBudgetMs,
+                          boolean processNodes, int cacheSize) {
+        this.metrics = metrics;
+        this.slowLog = slowLog;
+        this.processNodes = processNodes;
+        this.cacheSize = cacheSize;
+        this.engine = new JSqlParserEngine(new SqlPreprocessor(true), simpleBudgetMs, complexBudgetMs);
+        this.engine.setTierListener(metrics::parseTier);
+    }
+
+    public Script build(String sql) {
+        Script out = new Script();
+        LineageGraph g = out.graph;
+        Map<Integer, String> stmtLabels = out.stmtLabels;
+        Map<Integer, int[]> stmtSpans = out.stmtSpans;
+
+        metrics.recordScriptSize(sql.length());
+        // 过程节点 id 前缀：同一份脚本得到相同的过程节点，重复入库/作业增量时保持稳定；
+        // 用与 ln_run.sql_hash 相同的 SHA-256，不同脚本不会共用过程节点
+        String processPrefix = processNodes ? PROCESS_PREFIX + sha256(sql) + "#" : null;
+
+        // 先按顶层分号切分，逐条预处理/解析：单条失败只影响自己，且每条语句的耗时可以单独归因
+        List<SqlScriptSplitter.Segment> segments = splitter.split(sql);
+        metrics.recordStatementCount(segments.size());
+
+        int stmtIndex = 0;
+        for (SqlScriptSplitter.Segment seg : segments) {
+            // 同一模板的语句（只有字面量、空白、注释不同）直接复用上次的解析结果
+            long[] fp = SqlPreprocessor.fingerprints(seg.text);
+            CachedLineage cached = cacheSize > 0 ? parseCache.get(fp[0]) : null;
+            StatementLineage sl;
+            if (cached != null && cached.check == fp[1]) {
+                sl = cached.lineage;
+                metrics.parseCache(true);
+            } else {
+                // 未命中，或指纹相同而校验值不同（两条不同的语句撞了指纹）：重新解析并覆盖
+                sl = analyze(seg);
+                if (cacheSize > 0) {
+                    metrics.parseCache(false);
+                    if (parseCache.size() >= cacheSize) {
+                        parseCache.clear();
+                    }
+                    parseCache.put(fp[0], new CachedLineage(fp[1], sl));
+                }
+            }
+
+            if (sl.label != null) {
+                stmtIndex++;
+                stmtLabels.put(stmtIndex, sl.label + "-" + stmtIndex);
+                stmtSpans.put(stmtIndex, new int[]{seg.start, seg.end});
+                addEdges(g, sl.targets, sl.sources, stmtIndex, processPrefix, stmtLabels.get(stmtIndex));
+            } else if (sl.sources != null) {
+                // 纯 SELECT：只放来源节点即可
+                for (String src : sl.sources) {
+                    g.addNode(src);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** 脚本正文的 SHA-256 十六进制（64 位），同时用作 ln_run.sql_hash / ln_sql_blob 的主键 */
+    public static String sha256(String s) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] b = md.digest(s.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte x : b) {
+            sb.append(String.format("%02x", x));
+        }
+        return sb.toString();
+    }
+
+    /** 缓存项：带上指纹之外的独立校验值，命中时比对 */
+    private static final class CachedLineage {
+        final long check;
+        final StatementLineage lineage;
+
+        CachedLineage(long check, StatementLineage lineage) {
+            this.check = check;
+            this.lineage = lineage;
+        }
+    }
+
+    /**
+     * 单条语句的表级血缘（与语句在脚本中的位置无关，可按指纹缓存复用）。
+     * label 为 INSERT-SELECT/CTAS/STEP，无写入目标时为 null。
+     */
+    static final class StatementLineage {
+        static final StatementLineage NONE = new StatementLineage(null, null, null);
+
+        final String label;
+        final Set<String> targets;
+        final Set<String> sources;
+
+        StatementLineage(String label, Set<String> targets, Set<String> sources) {
+            this.label = label;
+            this.targets = targets == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(targets));
+            this.sources = sources == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(sources));
+        }
+    }
+
+    /** 预处理、分流、解析、兜底扫描一条语句 */
+    private StatementLineage analyze(SqlScriptSplitter.Segment seg) {
+        long preNanos, parseNanos = 0, walkNanos = 0, fallbackNanos = 0;
+
+        Timer.Sample pre = metrics.start();
+        String text = engine.preprocess(seg.text);
+        preNanos = metrics.stop(pre, LineageMetrics.PREPROCESS);
+        if (text == null || text.trim().isEmpty()) {
+            return StatementLineage.NONE;
+        }
+
+        // 前导关键字分流：无关语句直接跳过，已知解析不了的写法直接走兜底，不再靠异常兜底
+        StatementClassifier.Route route = classifier.classify(text);
+        metrics.routed(route);
+        if (route == StatementClassifier.Route.SKIP) {
+            return StatementLineage.NONE;
+        }
+
+        Statement s = null;
+        if (route == StatementClassifier.Route.PARSE) {
+            Timer.Sample parse = metrics.start();
+            try {
+                s = engine.parseStatement(text);
+            } catch (Exception e) {
+                // 解析失败：该语句走兜底扫描
+                metrics.statementFallback();
+            } finally {
+                parseNanos = metrics.stop(parse, LineageMetrics.PARSE);
+            }
+        }
+
+        Optional<String> targetOpt = Optional.empty();
+        Set<String> sources = null;
+        if (s != null) {
+            targetOpt = engine.extractTargetTable(s);
+
+            // 1) 先拿 AST 的来源表（会包含子查询/JOIN/逗号表列）
+            Timer.Sample walk = metrics.start();
+            sources = engine.extractSourceTables(s);
+            walkNanos = metrics.stop(walk, LineageMetrics.EXTRACT_SOURCES);
+        }
+
+        // 2) 再用兜底扫描器取并集（避免任何遗漏）；解析失败时它就是唯一来源
+        Timer.Sample fbSample = metrics.start();
+        JSqlParserEngine.FallbackResult fb = engine.fallbackExtract(s != null ? s.toString() : text);
+        fallbackNanos = metrics.stop(fbSample, LineageMetrics.FALLBACK);
+        if (fb != null && fb.sources != null && !fb.sources.isEmpty()) {
+            if (sources == null || sources.isEmpty()) {
+                sources = new LinkedHashSet<>(fb.sources);
+            } else {
+                sources.addAll(fb.sources);
+            }
+        }
+
+        if (slowLog != null) {
+            slowLog.offer(seg.ordinal, s != null ? "ast" : (route == StatementClassifier.Route.FALLBACK ? "routed-fallback" : "fallback"),
+                    preNanos, parseNanos, walkNanos, fallbackNanos, seg.text);
+        }
+
+        if (targetOpt.isPresent()) {
+            String label = s instanceof Insert ? "INSERT-SELECT" : (s instanceof CreateTable ? "CTAS" : "STEP");
+            return new StatementLineage(label, Collections.singleton(targetOpt.get()), sources);
+        }
+        if (fb != null && fb.targets != null && !fb.targets.isEmpty()) {
+            // 该语句可能是 CREATE VIEW/Hive 多 INSERT 等，尝试兜底是否有“目标”
+            return new StatementLineage("INSERT-SELECT", fb.targets, sources);
+        }
+        return new StatementLineage(null, null, sources);
+    }
+
+    /**
+     * 写入一条语句的边。processPrefix 非空且 来源数×目标数 > 来源数+目标数 时（如 Hive 多路 INSERT），
+     * 改为 来源 -> 过程节点 -> 目标，M×N 条边变成 M+N 条；来源与目标有重叠时仍用直连边，避免经过程节点成环。
+     */
+    private static void addEdges(LineageGraph g, Set<String> targets, Set<String> sources, int stmtIndex,
+                                 String processPrefix, String label) {
+        if (processPrefix != null && sources != null && !sources.isEmpty()
+                && (long) sources.size() * targets.size() > sources.size() + targets.size()
+                && Collections.disjoint(sources, targets)) {
+            String process = processPrefix + stmtIndex;
+            g.addNode(process, label == null ? process : label, PROCESS_TYPE);
+            for (String src : sources) {
+                if (src != null) {
+                    g.addNode(src);
+                    g.addEdge(src, process, stmtIndex);
+                }
+            }
+            for (String tgt : targets) {
+                g.addNode(tgt);
+                g.addEdge(process, tgt, stmtIndex);
+            }
+            return;
+        }
+        for (String tgt : targets) {
+            g.addNode(tgt);
+            if (sources == null) {
+                continue;
+            }
+            for (String src : sources) {
+                if (src != null && !tgt.equals(src)) {
+                    g.addNode(src);
+                    g.addEdge(src, tgt, stmtIndex);
+                }
+            }
+        }
+    }
+}
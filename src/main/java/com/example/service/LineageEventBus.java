@@ -0,0 +1,278 @@
+package com.example.service;
+
+import com.example.dto.GraphDTO;
+import com.example.dto.LineageChangeDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 血缘变更的 SSE 推送。入库提交后 {@link #publish} 把变更放进每个客户端各自的有界队列，
+ * 由调度线程按客户端分别交给发送线程池：积压的多条变更合并成一条再发；队列满说明客户端跟不上，
+ * 丢弃积压、只发一个 reset，让客户端重新拉取。入库线程从不等待网络写入。
+ * <p>
+ * 每个客户端同一时刻最多只有一次发送在进行，一个卡住的连接只占住自己的那个发送线程，
+ * 不影响其他客户端；一次发送超过 send-timeout-ms 仍未完成的客户端直接断开。
+ */
+@Service
+public class LineageEventBus {
+    private static final Logger log = LoggerFactory.getLogger(LineageEventBus.class);
+
+    /** 一个订阅的客户端；队列与 reset 标记由自身加锁保护 */
+    private static class Client {
+        final SseEmitter emitter;
+        final ArrayDeque<LineageChangeDTO> queue = new ArrayDeque<>();
+        boolean reset;
+        /** 正在进行的发送开始的时间，0 表示空闲 */
+        volatile long sendingSince;
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized boolean offer(LineageChangeDTO change, int capacity) {
+            if (reset) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                queue.clear();
+                reset = true;
+                return false;
+            }
+            queue.add(change);
+            return true;
+        }
+    }
+
+    private final GraphIndexService graphIndex;
+    private final int bufferSize;
+    private final long heartbeatMs;
+    private final long sendTimeoutMs;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final Object signal = new Object();
+    private boolean pending;
+    private volatile boolean running;
+    private Thread sender;
+    /** 每个客户端最多占一个线程（同一客户端不会并发发送），线程数随连接数伸缩 */
+    private final ExecutorService sendPool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "lineage-events-send");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LineageEventBus(GraphIndexService graphIndex,
+                           @Value("${lineage.events.buffer-size:256}") int bufferSize,
+                           @Value("${lineage.events.heartbeat-ms:15000}") long heartbeatMs,
+                           @Value("${lineage.events.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.graphIndex = graphIndex;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.heartbeatMs = heartbeatMs;
+        this.sendTimeoutMs = Math.max(1, sendTimeoutMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = new Thread(this::loop, "lineage-events");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wake();
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+        sendPool.shutdown();
+        for (Client c : clients) {
+            c.emitter.complete();
+        }
+    }
+
+    /**
+     * 新订阅：先登记再发 hello（带当前 epoch），之后只推增量。登记之后提交的变更进入该客户端的队列，
+     * 发 hello 期间客户端标记为发送中，调度线程不会抢在 hello 之前推送。
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Client c = new Client(emitter);
+        emitter.onCompletion(() -> clients.remove(c));
+        emitter.onTimeout(() -> clients.remove(c));
+        emitter.onError(e -> clients.remove(c));
+        c.sendingSince = System.currentTimeMillis();
+        clients.add(c);
+        try {
+            emitter.send(SseEmitter.event().name("hello").data(graphIndex.index().epoch()));
+        } catch (Exception e) {
+            clients.remove(c);
+            emitter.completeWithError(e);
+            return emitter;
+        } finally {
+            c.sendingSince = 0;
+        }
+        wake();
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return !clients.isEmpty();
+    }
+
+    /** 入库提交后调用；只入队，不做网络写入 */
+    public void publish(LineageChangeDTO change) {
+        if (change.addedEdges.isEmpty() && change.removedEdges.isEmpty()) {
+            return;
+        }
+        for (Client c : clients) {
+            c.offer(change, bufferSize);
+        }
+        wake();
+    }
+
+    private void wake() {
+        synchronized (signal) {
+            pending = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void loop() {
+        long lastSend = System.currentTimeMillis();
+        while (running) {
+            try {
+                synchronized (signal) {
+                    long wait = Math.min(heartbeatMs - (System.currentTimeMillis() - lastSend), sendTimeoutMs);
+                    if (!pending && wait > 0) {
+                        signal.wait(wait);
+                    }
+                    pending = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean heartbeat = now - lastSend >= heartbeatMs;
+            for (Client c : clients) {
+                dispatch(c, heartbeat, now);
+            }
+            if (heartbeat) {
+                lastSend = now;
+            }
+        }
+    }
+
+    /** 客户端空闲时把一次发送交给线程池；上一次发送还没结束则跳过（变更留在队列里），超时则断开 */
+    private void dispatch(Client c, boolean heartbeat, long now) {
+        long since = c.sendingSince;
+        if (since != 0) {
+            if (now - since > sendTimeoutMs) {
+                drop(c, new IllegalStateException("send timed out after " + sendTimeoutMs + " ms"));
+            }
+            return;
+        }
+        boolean idle;
+        synchronized (c) {
+            idle = c.queue.isEmpty() && !c.reset;
+        }
+        if (idle && !heartbeat) {
+            return;
+        }
+        c.sendingSince = now;
+        try {
+            sendPool.execute(() -> {
+                try {
+                    drain(c, heartbeat);
+                } finally {
+                    c.sendingSince = 0;
+                }
+                wake(); // 发送期间可能又积压了变更
+            });
+        } catch (RejectedExecutionException e) {
+            c.sendingSince = 0; // 停机中
+        }
+    }
+
+    private void drain(Client c, boolean heartbeat) {
+        List<LineageChangeDTO> batch;
+        boolean reset;
+        synchronized (c) {
+            batch = new ArrayList<>(c.queue);
+            c.queue.clear();
+            reset = c.reset;
+            c.reset = false;
+        }
+        try {
+            if (reset) {
+                LineageChangeDTO r = new LineageChangeDTO();
+                r.kind = LineageChangeDTO.RESET;
+                r.epoch = graphIndex.index().epoch();
+                c.emitter.send(SseEmitter.event().name(r.kind).data(r));
+            } else if (!batch.isEmpty()) {
+                c.emitter.send(SseEmitter.event().name(LineageChangeDTO.CHANGE).data(coalesce(batch)));
+            } else if (heartbeat) {
+                c.emitter.send(SseEmitter.event().comment("ping"));
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            drop(c, e);
+        }
+    }
+
+    private void drop(Client c, Exception cause) {
+        if (clients.remove(c)) {
+            log.debug("drop lineage event subscriber: {}", cause.toString());
+            c.emitter.completeWithError(cause);
+        }
+    }
+
+    /** 按顺序合并多条变更：同一条边以最后一次的增/删为准，节点取并集，epoch/runId 取最后一条 */
+    static LineageChangeDTO coalesce(List<LineageChangeDTO> batch) {
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        Map<String, GraphDTO.Node> nodes = new LinkedHashMap<>();
+        Map<String, GraphDTO.Edge> edges = new LinkedHashMap<>();
+        Map<String, Boolean> added = new LinkedHashMap<>();
+        LineageChangeDTO out = new LineageChangeDTO();
+        for (LineageChangeDTO c : batch) {
+            for (GraphDTO.Node n : c.nodes) {
+                nodes.put(n.id, n);
+            }
+            for (GraphDTO.Edge e : c.addedEdges) {
+                String key = e.source + "->" + e.target;
+                edges.put(key, e);
+                added.remove(key);
+                added.put(key, true);
+            }
+            for (GraphDTO.Edge e : c.removedEdges) {
+                String key = e.source + "->" + e.target;
+                edges.put(key, e);
+                added.remove(key);
+                added.put(key, false);
+            }
+            out.epoch = Math.max(out.epoch, c.epoch);
+            out.runId = c.runId;
+        }
+        out.nodes.addAll(nodes.values());
+        for (Map.Entry<String, Boolean> en : added.entrySet()) {
+            (en.getValue() ? out.addedEdges : out.removedEdges).add(edges.get(en.getKey()));
+        }
+        return out;
+    }
+}
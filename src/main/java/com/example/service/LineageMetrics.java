@@ -0,0 +1,111 @@
+package com.example.service;
+
+import com.example.parser.StatementClassifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 血缘流水线各阶段的指标（经 /actuator/prometheus 暴露）。
+ * 计时器统一命名为 lineage.stage，用 stage 标签区分阶段，便于在一张图里对比耗时。
+ */
+@Component
+public class LineageMetrics {
+
+    public static final String PREPROCESS = "preprocess";
+    public static final String PARSE = "parse";
+    public static final String EXTRACT_SOURCES = "extract_sources";
+    public static final String FALLBACK = "fallback";
+    public static final String SAVE_NODES = "save_nodes";
+    public static final String SAVE_EDGES = "save_edges";
+    public static final String SUBGRAPH = "subgraph";
+    public static final String PATH = "path";
+
+    private final MeterRegistry registry;
+    private final DistributionSummary statementCount;
+    private final DistributionSummary scriptBytes;
+    private final Counter statementFallback;
+    private final DistributionSummary groupCommitBatch;
+
+    public LineageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.statementCount = DistributionSummary.builder("lineage.script.statements")
+                .description("每次入库脚本的语句数")
+                .register(registry);
+        this.groupCommitBatch = DistributionSummary.builder("lineage.group_commit.batch")
+                .description("组提交时每个事务合并的入库请求数")
+                .register(registry);
+        this.scriptBytes = DistributionSummary.builder("lineage.script.size")
+                .description("每次入库脚本的字符数")
+                .baseUnit("chars")
+                .register(registry);
+        this.statementFallback = Counter.builder("lineage.fallback.statements")
+                .description("JSqlParser 解析失败、该语句改走兜底扫描的次数")
+                .register(registry);
+    }
+
+    /** 取某个阶段的计时器（Micrometer 内部按名称+标签缓存，重复获取开销很小） */
+    public Timer stage(String stage) {
+        return Timer.builder("lineage.stage")
+                .description("血缘流水线各阶段耗时")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public long stop(Timer.Sample sample, String stage) {
+        return sample.stop(stage(stage));
+    }
+
+    public void recordScriptSize(int sqlLength) {
+        scriptBytes.record(sqlLength);
+    }
+
+    public void recordStatementCount(int stmtCount) {
+        statementCount.record(stmtCount);
+    }
+
+    public void recordGroupCommitBatch(int runs) {
+        groupCommitBatch.record(runs);
+    }
+
+    public void statementFallback() {
+        statementFallback.increment();
+    }
+
+    /** 分档解析结果：tier=simple/complex，outcome=ok/fail/timeout */
+    public void parseTier(String tier, String outcome, long nanos) {
+        Timer.builder("lineage.parse.tier")
+                .description("两档解析（简单/复杂）各自的耗时与结果")
+                .tag("tier", tier)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** 语句分流结果计数：route=skip/parse/fallback */
+    public void routed(StatementClassifier.Route route) {
+        Counter.builder("lineage.statements.routed")
+                .description("前导关键字分流后各路线的语句数")
+                .tag("route", route.name().toLowerCase(Locale.ROOT))
+                .register(registry)
+                .increment();
+    }
+
+    /** 语句指纹缓存命中与否：result=hit/miss */
+    public void parseCache(boolean hit) {
+        Counter.builder("lineage.parse.cache")
+                .description("按语句指纹复用解析结果的命中情况")
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 启动预热：在应用就绪（readiness 探针通过）之前把内置语料解析若干轮，
+ * 让 JSqlParser 生成的解析器类、兜底扫描器完成类加载与 JIT，首批入库请求不再慢几倍。
+ * 用独立的构建器（不走指纹缓存、指标记到临时注册表），不影响线上指标与慢语句记录。
+ */
+@Component
+public class ParserWarmup implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(ParserWarmup.class);
+
+    private final boolean enabled;
+    private final int rounds;
+    private final Resource corpus;
+    private final long simpleBudgetMs;
+    private final long complexBudgetMs;
+    private final boolean processNodes;
+
+    public ParserWarmup(@Value("${lineage.warmup.enabled:true}") boolean enabled,
+                        @Value("${lineage.warmup.rounds:20}") int rounds,
+                        @Value("${lineage.warmup.corpus:classpath:warmup/corpus.sql}") Resource corpus,
+                        @Value("${lineage.parse.simple-budget-ms:1000}") long simpleBudgetMs,
+                        @Value("${lineage.parse.complex-budget-ms:6000}") long complexBudgetMs,
+                        @Value("${lineage.process-nodes.enabled:false}") boolean processNodes) {
+        this.enabled = enabled;
+        this.rounds = rounds;
+        this.corpus = corpus;
+        this.simpleBudgetMs = simpleBudgetMs;
+        this.complexBudgetMs = complexBudgetMs;
+        this.processNodes = processNodes;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || rounds <= 0 || !corpus.exists()) {
+            return;
+        }
+        try {
+            String sql = StreamUtils.copyToString(corpus.getInputStream(), StandardCharsets.UTF_8);
+            LineageBuilder builder = new LineageBuilder(new LineageMetrics(new SimpleMeterRegistry()), null,
+                    simpleBudgetMs, complexBudgetMs, processNodes, 0);
+            long first = 0, last = 0;
+            for (int i = 0; i < rounds; i++) {
+                long t0 = System.nanoTime();
+                builder.build(sql);
+                last = System.nanoTime() - t0;
+                if (i == 0) {
+                    first = last;
+                }
+            }
+            log.info("parser warm-up: {} rounds, first {} ms, last {} ms",
+                    rounds, first / 1_000_000, last / 1_000_000);
+        } catch (Exception e) {
+            // 预热失败不影响启动
+            log.warn("parser warm-up failed: {}", e.toString());
+        }
+    }
+}
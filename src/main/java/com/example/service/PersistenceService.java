@@ -1,19 +1,33 @@
 package com.example.service;
 
 import com.example.dao.EdgeRepo;
+import com.example.dao.JobLockRepo;
 import com.example.dao.LineageRunRepo;
+import com.example.dao.StatementSpanRepo;
 import com.example.dao.TableNodeRepo;
+import com.example.dto.BatchGraphDTO;
 import com.example.dto.GraphDTO;
+import com.example.dto.LineageDiffDTO;
+import com.example.dto.LineagePathDTO;
+import com.example.dto.SchemaGraphDTO;
+import com.example.dto.StatementProvenanceDTO;
 import com.example.dto.TableSummaryDTO;
+import com.example.dto.TopoOrderDTO;
+import com.example.graph.EdgeRecord;
+import com.example.graph.LineageGraphIndex;
 import com.example.model.EdgeEntity;
 import com.example.model.LineageGraph;
 import com.example.model.LineageRunEntity;
+import com.example.model.StatementSpanEntity;
+import com.example.model.TableNameDictionary;
 import com.example.model.TableNodeEntity;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import java.time.Instant;
 import java.util.*;
 
 @Service
@@ -21,40 +35,90 @@ public class PersistenceService {
     private final TableNodeRepo tableRepo;
     private final EdgeRepo edgeRepo;
     private final LineageRunRepo runRepo;
+    private final LineageMetrics metrics;
+    private final TableNameDictionary names = TableNameDictionary.global();
+    private static final int CLOSE_BATCH = 1000;
+    private static final int NAME_BATCH = 500;
 
-    public PersistenceService(TableNodeRepo tableRepo, EdgeRepo edgeRepo, LineageRunRepo runRepo) {
+    private final GraphIndexService graphIndex;
+    private final SqlBlobStore blobStore;
+    private final StatementSpanRepo spanRepo;
+    private final GraphAnalyticsService analytics;
+    private final ChangeLogSync changeLog;
+    private final JobLockRepo jobLockRepo;
+
+    public PersistenceService(TableNodeRepo tableRepo, EdgeRepo edgeRepo, LineageRunRepo runRepo,
+                              LineageMetrics metrics, GraphIndexService graphIndex, SqlBlobStore blobStore,
+                              StatementSpanRepo spanRepo, GraphAnalyticsService analytics,
+                              ChangeLogSync changeLog, JobLockRepo jobLockRepo) {
         this.tableRepo = tableRepo;
         this.edgeRepo = edgeRepo;
         this.runRepo = runRepo;
+        this.metrics = metrics;
+        this.graphIndex = graphIndex;
+        this.blobStore = blobStore;
+        this.spanRepo = spanRepo;
+        this.analytics = analytics;
+        this.changeLog = changeLog;
+        this.jobLockRepo = jobLockRepo;
     }
 
+    /**
+     * 保存一次 run。replacesRunId 非空时，该 run 写入且仍有效的边在同一事务内被关闭（valid_to = 本次 run），
+     * 历史查询仍能看到它们。
+     * <p>
+     * jobKey 非空时按作业增量入库：与该作业当前有效的边按 (来源, 目标) 求差，
+     * 只插入新出现的边、只关闭不再产出的边，未变化的边保持原样（此时忽略 replacesRunId）。
+     * 同一作业的并发入库在作业锁上排队，后到的基于先到的结果求差。
+     */
     @Transactional
-    public Long saveRun(String sql, LineageGraph graph, Map<Integer, String> stmtLabels) throws Exception {
+    public Long saveRun(String sql, LineageGraph graph, Map<Integer, String> stmtLabels,
+                        Map<Integer, int[]> stmtSpans, Long replacesRunId, String jobKey) throws Exception {
+        if (jobKey != null) {
+            lockJobs(Collections.singleton(jobKey));
+        }
+        String hash = LineageBuilder.sha256(sql);
+        blobStore.store(hash, sql);
+
         LineageRunEntity run = new LineageRunEntity();
-        run.setSqlText(sql);
-        run.setSqlHash(sha256(sql));
+        run.setSqlHash(hash);
         run.setStmtCount(stmtLabels != null ? stmtLabels.size() : null);
+        run.setJobKey(jobKey);
         run = runRepo.save(run);
 
-        Map<String, TableNodeEntity> nodeCache = new HashMap<>();
-        for (LineageGraph.Node n : graph.getNodes()) {
-            String name = n.getId();
-            TableNodeEntity ent = tableRepo.findByName(name).orElse(null);
-            if (ent == null) {
-                ent = new TableNodeEntity();
-                ent.setName(name);
-                ent.setType(n.getType() == null ? "table" : n.getType());
-                ent.setDisplayName(n.getLabel() == null ? name : n.getLabel());
-                ent = tableRepo.save(ent);
-            } else {
-                ent = tableRepo.save(ent);
+        List<LineageGraph.Edge> toInsert = graph.getEdges();
+        Collection<LineageGraph.Node> toSaveNodes = graph.getNodes();
+        List<Long> toClose = Collections.emptyList();
+        if (jobKey != null) {
+            JobDiff diff = diffAgainstJob(jobKey, graph);
+            toInsert = diff.inserts;
+            toClose = diff.closes;
+            toSaveNodes = nodesOf(graph, toInsert);
+        } else if (replacesRunId != null) {
+            toClose = edgeRepo.findOpenIdsByRun(replacesRunId);
+        }
+
+        if (stmtSpans != null) {
+            for (Map.Entry<Integer, int[]> sp : stmtSpans.entrySet()) {
+                StatementSpanEntity span = new StatementSpanEntity();
+                span.setRun(run);
+                span.setStmtIndex(sp.getKey());
+                span.setStartPos(sp.getValue()[0]);
+                span.setEndPos(sp.getValue()[1]);
+                spanRepo.save(span);
             }
-            nodeCache.put(name, ent);
         }
 
-        for (LineageGraph.Edge e : graph.getEdges()) {
-            TableNodeEntity src = nodeCache.get(e.getSource());
-            TableNodeEntity tgt = nodeCache.get(e.getTarget());
+        Timer.Sample nodePhase = metrics.start();
+        // 按表名字典的 int id 缓存本次涉及的节点
+        Map<Integer, TableNodeEntity> nodeCache = resolveNodes(toSaveNodes);
+        metrics.stop(nodePhase, LineageMetrics.SAVE_NODES);
+
+        Timer.Sample edgePhase = metrics.start();
+        List<EdgeRecord> saved = new ArrayList<>(toInsert.size());
+        for (LineageGraph.Edge e : toInsert) {
+            TableNodeEntity src = nodeCache.get(names.existingId(e.getSource()));
+            TableNodeEntity tgt = nodeCache.get(names.existingId(e.getTarget()));
             if (src == null || tgt == null) {
                 continue;
             }
@@ -66,28 +130,188 @@ public class PersistenceService {
             if (e.getStmtIndex() != null && stmtLabels != null) {
                 ee.setStepLabel(stmtLabels.getOrDefault(e.getStmtIndex(), null));
             }
-            edgeRepo.save(ee);
+            ee = edgeRepo.save(ee);
+            saved.add(new EdgeRecord(ee.getId(), src.getName(), src.getType(), tgt.getName(), tgt.getType(), run.getId()));
+        }
+        // 关闭按 id 分批做批量 UPDATE，一条语句处理一批
+        for (int i = 0; i < toClose.size(); i += CLOSE_BATCH) {
+            edgeRepo.closeOpenByIds(toClose.subList(i, Math.min(toClose.size(), i + CLOSE_BATCH)),
+                    run.getId(), run.getCreatedAt());
+        }
+        long[] closed = toClose.stream().mapToLong(Long::longValue).toArray();
+        metrics.stop(edgePhase, LineageMetrics.SAVE_EDGES);
+
+        // 变更日志与边同一事务提交，其他实例据此追读
+        long runId = run.getId();
+        changeLog.record(runId);
+
+        // 提交成功后再写入常驻图索引，回滚的数据不会进入索引
+        afterCommit(() -> changeLog.applyCommitted(runId, saved, closed));
+        return runId;
+    }
+
+    /**
+     * 在当前事务内锁住这些作业（按名字排序加锁，多个作业一起锁时不会互相死锁），直到事务结束。
+     * 须在事务的第一次普通读之前调用：可重复读隔离级别下，之后的一致性读才能看到上一个持锁事务提交的边。
+     */
+    @Transactional
+    public void lockJobs(Collection<String> jobKeys) {
+        for (String jobKey : new TreeSet<>(jobKeys)) {
+            jobLockRepo.insertIgnore(jobKey);
+            jobLockRepo.lock(jobKey);
+        }
+    }
+
+    /**
+     * 取得（必要时创建）节点行，可多个入库事务并行执行：
+     * 先按名批量查询；缺的按名字排序逐个 insert ignore（各事务按同一顺序加唯一键锁，不会互相死锁），
+     * 再加锁读取补齐——包括刚被其他事务抢先插入并提交的行。
+     */
+    private Map<Integer, TableNodeEntity> resolveNodes(Collection<LineageGraph.Node> nodes) {
+        TreeMap<String, LineageGraph.Node> byName = new TreeMap<>();
+        for (LineageGraph.Node n : nodes) {
+            byName.put(n.getId(), n);
+        }
+        Map<String, TableNodeEntity> found = new HashMap<>();
+        List<String> all = new ArrayList<>(byName.keySet());
+        for (int i = 0; i < all.size(); i += NAME_BATCH) {
+            for (TableNodeEntity e : tableRepo.findByNameIn(all.subList(i, Math.min(all.size(), i + NAME_BATCH)))) {
+                found.put(names.canonical(e.getName()), e);
+            }
         }
-        return run.getId();
+        List<String> missing = new ArrayList<>();
+        for (String name : all) {
+            if (!found.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (String name : missing) {
+                LineageGraph.Node n = byName.get(name);
+                tableRepo.insertIgnore(name, n.getType() == null ? "table" : n.getType(),
+                        n.getLabel() == null ? name : n.getLabel());
+            }
+            for (int i = 0; i < missing.size(); i += NAME_BATCH) {
+                for (TableNodeEntity e : tableRepo.lockByNameIn(missing.subList(i, Math.min(missing.size(), i + NAME_BATCH)))) {
+                    found.put(names.canonical(e.getName()), e);
+                }
+            }
+        }
+        Map<Integer, TableNodeEntity> out = new HashMap<>();
+        for (String name : all) {
+            TableNodeEntity e = found.get(name);
+            if (e != null) {
+                out.put(names.id(name), e);
+            }
+        }
+        return out;
+    }
+
+    /** 作业增量入库的差集结果 */
+    private static class JobDiff {
+        final List<LineageGraph.Edge> inserts = new ArrayList<>();
+        final List<Long> closes = new ArrayList<>();
+    }
+
+    /** 以 (来源 id, 目标 id) 为键，与作业当前有效的边求差；同一对表只插入一条 */
+    private JobDiff diffAgainstJob(String jobKey, LineageGraph graph) {
+        Set<Long> wanted = new HashSet<>();
+        for (LineageGraph.Edge e : graph.getEdges()) {
+            wanted.add(pairKey(e.getSource(), e.getTarget()));
+        }
+        JobDiff diff = new JobDiff();
+        Set<Long> existing = new HashSet<>();
+        for (Object[] r : edgeRepo.findOpenPairsByJob(jobKey)) {
+            long key = pairKey((String) r[1], (String) r[2]);
+            if (wanted.contains(key)) {
+                existing.add(key);
+            } else {
+                diff.closes.add(((Number) r[0]).longValue());
+            }
+        }
+        for (LineageGraph.Edge e : graph.getEdges()) {
+            if (existing.add(pairKey(e.getSource(), e.getTarget()))) {
+                diff.inserts.add(e);
+            }
+        }
+        return diff;
+    }
+
+    private long pairKey(String source, String target) {
+        return ((long) names.id(names.canonical(source)) << 32) | (names.id(names.canonical(target)) & 0xffffffffL);
+    }
+
+    /** 只取这些边涉及的节点 */
+    private static List<LineageGraph.Node> nodesOf(LineageGraph graph, List<LineageGraph.Edge> edges) {
+        Set<String> used = new HashSet<>();
+        for (LineageGraph.Edge e : edges) {
+            used.add(e.getSource());
+            used.add(e.getTarget());
+        }
+        List<LineageGraph.Node> out = new ArrayList<>();
+        for (LineageGraph.Node n : graph.getNodes()) {
+            if (used.contains(n.getId())) {
+                out.add(n);
+            }
+        }
+        return out;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /** 某次 run 的脚本原文（历史 run 直接取 sql_text，新 run 按哈希解压）；run 不存在返回 null */
+    @Transactional(readOnly = true)
+    public String loadSql(Long runId) {
+        LineageRunEntity run = runRepo.findById(runId).orElse(null);
+        if (run == null) {
+            return null;
+        }
+        return run.getSqlText() != null ? run.getSqlText() : blobStore.load(run.getSqlHash());
+    }
+
+    /**
+     * 边对应的源语句：按入库时记录的字符区间做区间读取，不加载/不重新解析整段脚本。
+     * 边不存在或没有区间记录（历史数据）时返回 null。
+     */
+    @Transactional(readOnly = true)
+    public StatementProvenanceDTO statementForEdge(Long edgeId) {
+        EdgeEntity edge = edgeRepo.findById(edgeId).orElse(null);
+        if (edge == null || edge.getStmtIndex() == null) {
+            return null;
+        }
+        Long runId = edge.getRun().getId();
+        StatementSpanEntity span = spanRepo.findByRun_IdAndStmtIndex(runId, edge.getStmtIndex()).orElse(null);
+        if (span == null) {
+            return null;
+        }
+        int start = span.getStartPos(), end = span.getEndPos();
+        // 有语句区间的 run 都晚于正文改存 ln_sql_blob，正文只在 blob 里；区间是 Java 字符下标，解压后按字符截取
+        String text = blobStore.loadRange(runRepo.findSqlHashById(runId), start, end);
+        return new StatementProvenanceDTO(edgeId, runId, edge.getStmtIndex(), edge.getStepLabel(), start, end, text);
     }
 
     @Transactional(readOnly = true)
     public List<TableSummaryDTO> listTables(String keyword) {
         List<TableNodeEntity> nodes = tableRepo.searchByKeyword(keyword);
-        List<EdgeEntity> edges = edgeRepo.findAllWithNodes();
-        Map<String, Long> inDeg = new HashMap<>();
-        Map<String, Long> outDeg = new HashMap<>();
-        for (EdgeEntity e : edges) {
-            String s = e.getSource().getName();
-            String t = e.getTarget().getName();
-            outDeg.put(s, outDeg.getOrDefault(s, 0L) + 1L);
-            inDeg.put(t, inDeg.getOrDefault(t, 0L) + 1L);
-        }
+        // 出入度直接取常驻图索引，不再全量扫描 ln_edge
         List<TableSummaryDTO> out = new ArrayList<>();
         for (TableNodeEntity n : nodes) {
-            long in = inDeg.getOrDefault(n.getName(), 0L);
-            long outd = outDeg.getOrDefault(n.getName(), 0L);
-            out.add(new TableSummaryDTO(n.getName(), n.getType(), in, outd));
+            long in = graphIndex.inDegree(n.getName());
+            long outd = graphIndex.outDegree(n.getName());
+            GraphAnalyticsService.TableStats st = analytics.stats(n.getName());
+            out.add(new TableSummaryDTO(n.getName(), n.getType(), in, outd,
+                    st.upstream, st.downstream, st.pageRank, st.depth));
         }
         return out;
     }
@@ -97,133 +321,118 @@ public class PersistenceService {
      * @param center 中心节点的表名
      * @return 包含子图节点和边信息的GraphDTO对象
      */
-    @Transactional(readOnly = true)
     public GraphDTO subgraphFor(String center) {
-        // 1. 从数据库获取所有边数据（包含关联的节点信息）
-        List<EdgeEntity> all = edgeRepo.findAllWithNodes();
-
-        // 2. 构建邻接表：创建两个映射来存储正向和逆向关系
-        // 存储每个节点的出边（指向的节点）
-        Map<String, Set<String>> out = new HashMap<>();
-        // 存储每个节点的入边（指向该节点的节点）
-        Map<String, Set<String>> in  = new HashMap<>();
-
-        // 3. 遍历所有边，填充邻接表
-        for (EdgeEntity e : all) {
-            // 获取源节点名称
-            String s = e.getSource().getName();
-            // 获取目标节点名称
-            String t = e.getTarget().getName();
-
-            // 处理正向关系 (s -> t)
-            if (!out.containsKey(s)) {
-                // 如果源节点尚未记录，初始化其出边集合
-                out.put(s, new LinkedHashSet<>());
-            }
-            // 将目标节点添加到源节点的出边集合中
-            out.get(s).add(t);
-
-            // 处理逆向关系 (t <- s)
-            if (!in.containsKey(t)) {
-                // 如果目标节点尚未记录，初始化其入边集合
-                in.put(t, new LinkedHashSet<>());
-            }
-            // 将源节点添加到目标节点的入边集合中
-            in.get(t).add(s);
-        }
-
-        // 4. 以center为核心进行双向BFS，探索指定深度内的所有相关节点
-        // 存储需要保留的节点集合（按探索顺序）
-        Set<String> keep = new LinkedHashSet<>();
-        // BFS队列，用于按层探索节点
-        Deque<String> q = new ArrayDeque<>();
-        // 将中心节点添加到保留集合
-        keep.add(center);
-        // 将中心节点加入队列，作为BFS的起点
-        q.add(center);
-
-        // 5. 执行BFS：当队列不为空且未达到指定深度时继续探索
-        while (!q.isEmpty()) {
-            // 记录当前层的节点数量
-            int size = q.size();
-            // 遍历当前层的所有节点
-            for (int i = 0; i < size; i++) {
-                // 从队列中取出一个节点
-                String u = q.poll();
-
-                // 正向探索：遍历当前节点的所有出边（指向的节点）
-                for (String v : out.getOrDefault(u, Collections.<String>emptySet())) {
-                    // 如果目标节点尚未在保留集合中
-                    if (!keep.contains(v)) {
-                        // 将其添加到保留集合
-                        keep.add(v);
-                        // 并将其加入队列，以便后续探索
-                        q.add(v);
-                    }
-                }
+        return subgraphFor(center, null, null);
+    }
 
-                // 逆向探索：遍历当前节点的所有入边（指向该节点的节点）
-                for (String v : in.getOrDefault(u, Collections.<String>emptySet())) {
-                    // 如果源节点尚未在保留集合中
-                    if (!keep.contains(v)) {
-                        // 将其添加到保留集合
-                        keep.add(v);
-                        // 并将其加入队列，以便后续探索
-                        q.add(v);
-                    }
-                }
-            }
+    /**
+     * 按历史时刻查看子图：asOfRun 优先，其次 asOf 时间（换算成该时刻之前最后一次 run），都为空时取当前状态
+     */
+    @Transactional(readOnly = true)
+    public GraphDTO subgraphFor(String center, Long asOfRun, Instant asOf) {
+        long at = resolveAsOfRun(asOfRun, asOf);
+        Timer.Sample sample = metrics.start();
+        try {
+            return graphIndex.component(names.lookup(center), at);
+        } finally {
+            metrics.stop(sample, LineageMetrics.SUBGRAPH);
         }
+    }
 
-        // 6. 构建子图数据：根据BFS得到的节点集合，筛选相关的边和节点
-        // 创建返回的DTO对象
-        GraphDTO dto = new GraphDTO();
-        // 记录已添加到DTO的节点，避免重复添加
-        Set<String> added = new HashSet<>();
+    /**
+     * 两个时刻之间的血缘差异。每一端可以是 run id、时间点，或（指定 jobKey 时）作业的版本号（从 1 开始）；
+     * 指定 jobKey 时只比较该作业写入的边。
+     */
+    public LineageDiffDTO diff(Long fromRun, Long toRun, Instant from, Instant to,
+                               String jobKey, Integer fromVersion, Integer toVersion) {
+        long[] jobRuns = null;
+        if (jobKey != null) {
+            List<Long> ids = runRepo.findIdsByJobKey(jobKey);
+            if (ids.isEmpty()) {
+                throw new IllegalArgumentException("作业不存在: " + jobKey);
+            }
+            jobRuns = ids.stream().mapToLong(Long::longValue).toArray();
+            if (fromVersion != null) {
+                fromRun = versionRun(ids, fromVersion);
+            }
+            if (toVersion != null) {
+                toRun = versionRun(ids, toVersion);
+            }
+        }
+        if ((fromRun == null && from == null) || (toRun == null && to == null)) {
+            throw new IllegalArgumentException("需要指定比较的两端");
+        }
+        return graphIndex.diff(resolveAsOfRun(fromRun, from), resolveAsOfRun(toRun, to), jobRuns);
+    }
 
-        // 7. 遍历所有边，筛选出至少一端在保留集合中的边
-        for (EdgeEntity e : all) {
-            // 获取边的源节点
-            String s = e.getSource().getName();
-            // 获取边的目标节点
-            String t = e.getTarget().getName();
+    private static Long versionRun(List<Long> jobRunIds, int version) {
+        if (version < 1 || version > jobRunIds.size()) {
+            throw new IllegalArgumentException("版本号超出范围: " + version);
+        }
+        return jobRunIds.get(version - 1);
+    }
 
-            // 跳过两端都不在保留集合中的边（与子图无关的边）
-            if (!keep.contains(s) && !keep.contains(t)) {
-                continue;
+    /**
+     * 多中心子图：direction 为 up / down / both，mode 为 union（合并）或 per-center（按中心分别给出）
+     */
+    public BatchGraphDTO batchSubgraph(List<String> centers, int depth, String direction, String mode) {
+        boolean up = !"down".equalsIgnoreCase(direction);
+        boolean down = !"up".equalsIgnoreCase(direction);
+        // 与 /api/graph、/api/path 一样只规范化、不驻留
+        List<String> canonical = new ArrayList<>(centers.size());
+        for (String c : centers) {
+            String n = names.lookup(c);
+            if (n != null) {
+                canonical.add(n);
             }
+        }
+        Timer.Sample sample = metrics.start();
+        try {
+            return graphIndex.batch(canonical, depth, up, down, "per-center".equalsIgnoreCase(mode));
+        } finally {
+            metrics.stop(sample, LineageMetrics.SUBGRAPH);
+        }
+    }
 
-            // 8. 添加源节点到DTO（如果尚未添加）
-            if (!added.contains(s)) {
-                // 创建节点对象：使用名称作为ID和标签，并包含节点类型信息
-                dto.getNodes().add(new GraphDTO.Node(s, s, e.getSource().getType()));
-                // 标记该节点已添加
-                added.add(s);
-            }
+    /** 当前血缘的拓扑序与成环边 */
+    public TopoOrderDTO topoOrder() {
+        return graphIndex.topoOrder(null, true);
+    }
 
-            // 9. 添加目标节点到DTO（如果尚未添加）
-            if (!added.contains(t)) {
-                dto.getNodes().add(new GraphDTO.Node(t, t, e.getTarget().getType()));
-                // 标记该节点已添加
-                added.add(t);
-            }
+    /** 库级概览 */
+    public SchemaGraphDTO schemaGraph() {
+        return graphIndex.schemaGraph();
+    }
 
-            // 10. 添加边到DTO（无论节点是否新添加，边都需要添加）
-            dto.getEdges().add(new GraphDTO.Edge(s, t));
-        }
+    /** 库级概览下钻：source 库到 target 库的表级依赖 */
+    public GraphDTO schemaEdges(String source, String target, int limit) {
+        return graphIndex.schemaEdges(source.trim().toLowerCase(Locale.ROOT), target.trim().toLowerCase(Locale.ROOT), limit);
+    }
 
-        // 11. 返回构建好的子图DTO
-        return dto;
+    /** 某次 run 写入时被判定为成环的边 */
+    public List<TopoOrderDTO.CycleEdge> cycleEdgesOfRun(Long runId) {
+        return graphIndex.topoOrder(runId, false).cycleEdges;
     }
 
+    /** from 到 to 的血缘路径（k 条以内、每条不超过 maxHops 跳） */
+    public LineagePathDTO paths(String from, String to, int k, int maxHops) {
+        Timer.Sample sample = metrics.start();
+        try {
+            return graphIndex.paths(names.lookup(from), names.lookup(to), k, maxHops);
+        } finally {
+            metrics.stop(sample, LineageMetrics.PATH);
+        }
+    }
 
-    private String sha256(String s) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[] b = md.digest(s.getBytes(StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        for (byte x : b) {
-            sb.append(String.format("%02x", x));
+    /** asOf 参数换算成 run id；该时刻之前没有任何 run 时返回 0（空图） */
+    public long resolveAsOfRun(Long asOfRun, Instant asOf) {
+        if (asOfRun != null) {
+            return asOfRun;
+        }
+        if (asOf != null) {
+            Long id = runRepo.findMaxIdCreatedAtOrBefore(asOf);
+            return id == null ? 0L : id;
         }
-        return sb.toString();
+        return LineageGraphIndex.CURRENT;
     }
 }
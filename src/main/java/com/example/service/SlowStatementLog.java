@@ -0,0 +1,104 @@
+package com.example.service;
+
+import com.example.parser.JSqlParserEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 慢语句记录：只保留耗时最长的前 N 条（小顶堆，容量固定），供管理端点查看与导出基准语料。
+ */
+@Component
+public class SlowStatementLog {
+
+    /** 单条语句的耗时画像（纳秒字段统一换算成毫秒输出） */
+    public static class SlowStatement {
+        public final Instant at;
+        public final int ordinal;
+        public final int length;
+        public final int nestingDepth;
+        public final String path;           // ast / fallback（解析失败后兜底）/ routed-fallback（分流直接兜底）
+        public final double preprocessMs;
+        public final double parseMs;
+        public final double walkMs;
+        public final double fallbackMs;
+        public final double totalMs;
+        public final String sql;
+
+        SlowStatement(int ordinal, String path, long preNanos, long parseNanos,
+                      long walkNanos, long fallbackNanos, String sql) {
+            this.at = Instant.now();
+            this.ordinal = ordinal;
+            this.length = sql.length();
+            this.nestingDepth = JSqlParserEngine.nestingDepth(sql);
+            this.path = path;
+            this.preprocessMs = toMs(preNanos);
+            this.parseMs = toMs(parseNanos);
+            this.walkMs = toMs(walkNanos);
+            this.fallbackMs = toMs(fallbackNanos);
+            this.totalMs = toMs(preNanos + parseNanos + walkNanos + fallbackNanos);
+            this.sql = sql;
+        }
+
+        private static double toMs(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    private static final Comparator<SlowStatement> BY_TOTAL = Comparator.comparingDouble(x -> x.totalMs);
+
+    private final int capacity;
+    private final long minNanos;
+    private final PriorityQueue<SlowStatement> heap;
+
+    public SlowStatementLog(@Value("${lineage.profiler.slow-statements.capacity:50}") int capacity,
+                            @Value("${lineage.profiler.slow-statements.min-ms:5}") long minMs) {
+        this.capacity = Math.max(1, capacity);
+        this.minNanos = minMs * 1_000_000L;
+        this.heap = new PriorityQueue<>(this.capacity, BY_TOTAL);
+    }
+
+    /**
+     * 记录一条语句的各阶段耗时；低于阈值或比当前堆里最快的还快时直接丢弃，不构造画像对象。
+     */
+    public void offer(int ordinal, String path, long preNanos, long parseNanos,
+                      long walkNanos, long fallbackNanos, String sql) {
+        long total = preNanos + parseNanos + walkNanos + fallbackNanos;
+        if (total < minNanos || sql == null) {
+            return;
+        }
+        synchronized (heap) {
+            if (heap.size() >= capacity && heap.peek().totalMs * 1_000_000.0 >= total) {
+                return;
+            }
+        }
+        SlowStatement rec = new SlowStatement(ordinal, path, preNanos, parseNanos, walkNanos, fallbackNanos, sql);
+        synchronized (heap) {
+            heap.offer(rec);
+            if (heap.size() > capacity) {
+                heap.poll();
+            }
+        }
+    }
+
+    /** 按耗时从高到低返回 */
+    public List<SlowStatement> snapshot() {
+        List<SlowStatement> out;
+        synchronized (heap) {
+            out = new ArrayList<>(heap);
+        }
+        out.sort(BY_TOTAL.reversed());
+        return out;
+    }
+
+    public void clear() {
+        synchronized (heap) {
+            heap.clear();
+        }
+    }
+}
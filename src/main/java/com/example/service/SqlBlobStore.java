@@ -0,0 +1,109 @@
+package com.example.service;
+
+import com.example.dao.SqlBlobRepo;
+import com.example.model.SqlBlobEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * SQL 脚本正文的内容寻址存储：按 SHA-256 去重，deflate 压缩后放在 ln_sql_blob，
+ * 只有真正需要看原文时才按哈希加载。
+ */
+@Service
+public class SqlBlobStore {
+    public static final String CODEC_DEFLATE = "deflate";
+
+    private final SqlBlobRepo blobRepo;
+
+    public SqlBlobStore(SqlBlobRepo blobRepo) {
+        this.blobRepo = blobRepo;
+    }
+
+    /** 同一哈希已存在时不再写入 */
+    @Transactional
+    public void store(String hash, String sql) {
+        if (blobRepo.existsById(hash)) {
+            return;
+        }
+        blobRepo.insertIgnore(hash, CODEC_DEFLATE, sql.length(), deflate(sql));
+    }
+
+    /** 完整原文；不存在返回 null */
+    @Transactional(readOnly = true)
+    public String load(String hash) {
+        SqlBlobEntity blob = hash == null ? null : blobRepo.findById(hash).orElse(null);
+        return blob == null ? null : inflate(blob.getData());
+    }
+
+    /**
+     * 区间读取 [start, end)：边解压边跳过，读到 end 即停止，不解压后续内容；不存在返回 null
+     */
+    @Transactional(readOnly = true)
+    public String loadRange(String hash, int start, int end) {
+        SqlBlobEntity blob = hash == null ? null : blobRepo.findById(hash).orElse(null);
+        if (blob == null) {
+            return null;
+        }
+        try (Reader in = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(blob.getData())),
+                StandardCharsets.UTF_8)) {
+            long toSkip = start;
+            while (toSkip > 0) {
+                long n = in.skip(toSkip);
+                if (n <= 0) {
+                    return "";
+                }
+                toSkip -= n;
+            }
+            char[] buf = new char[Math.max(0, end - start)];
+            int off = 0;
+            while (off < buf.length) {
+                int n = in.read(buf, off, buf.length - off);
+                if (n < 0) {
+                    break;
+                }
+                off += n;
+            }
+            return new String(buf, 0, off);
+        } catch (IOException e) {
+            throw new IllegalStateException("SQL 正文解压失败", e);
+        }
+    }
+
+    static byte[] deflate(String sql) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, sql.length() / 4));
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bos, deflater)) {
+            out.write(sql.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+        return bos.toByteArray();
+    }
+
+    static String inflate(byte[] data) {
+        try (Reader in = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(data)),
+                StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder(data.length * 4);
+            char[] buf = new char[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("SQL 正文解压失败", e);
+        }
+    }
+}
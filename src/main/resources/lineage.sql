@@ -6,10 +6,13 @@ CREATE TABLE `ln_edge` (
                            `stmt_index` int DEFAULT NULL,
                            `step_label` varchar(64) DEFAULT NULL,
                            `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                           `valid_to_run` bigint DEFAULT NULL,
+                           `valid_to` timestamp NULL DEFAULT NULL,
                            PRIMARY KEY (`id`),
                            KEY `idx_edge_src` (`source_id`),
                            KEY `idx_edge_tgt` (`target_id`),
                            KEY `idx_edge_run` (`run_id`),
+                           KEY `idx_edge_valid_to_run` (`valid_to_run`),
                            CONSTRAINT `fk_edge_run` FOREIGN KEY (`run_id`) REFERENCES `ln_run` (`id`),
                            CONSTRAINT `fk_edge_src` FOREIGN KEY (`source_id`) REFERENCES `ln_table` (`id`),
                            CONSTRAINT `fk_edge_tgt` FOREIGN KEY (`target_id`) REFERENCES `ln_table` (`id`)
@@ -19,10 +22,13 @@ CREATE TABLE `ln_edge` (
 CREATE TABLE `ln_run` (
                           `id` bigint NOT NULL AUTO_INCREMENT,
                           `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
-                          `sql_text` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL,
+                          `sql_text` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci DEFAULT NULL,
                           `sql_hash` varchar(128) DEFAULT NULL,
                           `stmt_count` int DEFAULT NULL,
-                          PRIMARY KEY (`id`)
+                          `job_key` varchar(128) DEFAULT NULL,
+                          PRIMARY KEY (`id`),
+                          KEY `idx_run_hash` (`sql_hash`),
+                          KEY `idx_run_job` (`job_key`)
 ) ENGINE=InnoDB AUTO_INCREMENT=24 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 
@@ -35,4 +41,50 @@ CREATE TABLE `ln_table` (
                             `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                             PRIMARY KEY (`id`),
                             UNIQUE KEY `uk_ln_table_name` (`name`)
-) ENGINE=InnoDB AUTO_INCREMENT=331 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
\ No newline at end of file
+) ENGINE=InnoDB AUTO_INCREMENT=331 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+
+CREATE TABLE `ln_sql_blob` (
+                               `hash` varchar(64) NOT NULL,
+                               `codec` varchar(16) NOT NULL,
+                               `raw_length` int NOT NULL,
+                               `data` longblob NOT NULL,
+                               `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               PRIMARY KEY (`hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `ln_stmt_span` (
+                                `id` bigint NOT NULL AUTO_INCREMENT,
+                                `run_id` bigint NOT NULL,
+                                `stmt_index` int NOT NULL,
+                                `start_pos` int NOT NULL,
+                                `end_pos` int NOT NULL,
+                                PRIMARY KEY (`id`),
+                                UNIQUE KEY `uk_stmt_span_run_idx` (`run_id`,`stmt_index`),
+                                CONSTRAINT `fk_stmt_span_run` FOREIGN KEY (`run_id`) REFERENCES `ln_run` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- 变更日志（只追加）：多实例按 seq 追读，同步各自的常驻图索引
+CREATE TABLE `ln_change_log` (
+                                 `seq` bigint NOT NULL AUTO_INCREMENT,
+                                 `run_id` bigint NOT NULL,
+                                 `instance_id` varchar(64) NOT NULL,
+                                 `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                 PRIMARY KEY (`seq`),
+                                 KEY `idx_change_log_created` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- 作业锁：每个作业一行，同一作业的增量入库 SELECT ... FOR UPDATE 这一行后依次求差
+CREATE TABLE `ln_job_lock` (
+                               `job_key` varchar(128) NOT NULL,
+                               `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               PRIMARY KEY (`job_key`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- 已有库升级：新 run 不再写 sql_text（正文按 sql_hash 压缩存到 ln_sql_blob）
+-- ALTER TABLE `ln_run` MODIFY `sql_text` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci DEFAULT NULL;
+-- ALTER TABLE `ln_run` ADD KEY `idx_run_hash` (`sql_hash`);
+-- 已有库升级：边的有效期终点（为空表示当前仍有效）
+-- ALTER TABLE `ln_edge` ADD `valid_to_run` bigint DEFAULT NULL, ADD `valid_to` timestamp NULL DEFAULT NULL, ADD KEY `idx_edge_valid_to_run` (`valid_to_run`);
+-- 已有库升级：run 的作业标识
+-- ALTER TABLE `ln_run` ADD `job_key` varchar(128) DEFAULT NULL, ADD KEY `idx_run_job` (`job_key`);